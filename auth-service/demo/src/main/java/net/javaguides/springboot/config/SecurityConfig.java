@@ -1,6 +1,8 @@
 package net.javaguides.springboot.config;
 
+import jakarta.servlet.DispatcherType;
 import net.javaguides.springboot.util.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -15,7 +17,9 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -23,7 +27,9 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @EnableGlobalMethodSecurity(prePostEnabled = true)  // Включает поддержку @PreAuthorize
 
@@ -32,9 +38,25 @@ import java.util.List;
 @EnableAsync
 public class SecurityConfig {
 
+    // Хеши хранятся с префиксом алгоритма ({bcrypt}, {argon2}); новые пароли кодируются алгоритмом
+    // password-hashing.algorithm. Старые хеши без префикса - BCrypt, они обновляются при следующем входе.
+    // Стоимость подбирается по PasswordHashCalibration / BCryptCostBenchmark.
     @Bean
-    public BCryptPasswordEncoder BCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder(); // Используйте BCrypt для хеширования паролей
+    public PasswordEncoder passwordEncoder(@Value("${password-hashing.algorithm:bcrypt}") String algorithm,
+                                           @Value("${password-hashing.bcrypt-strength:10}") int bcryptStrength,
+                                           @Value("${password-hashing.argon2.memory-kb:16384}") int argon2MemoryKb,
+                                           @Value("${password-hashing.argon2.iterations:2}") int argon2Iterations,
+                                           @Value("${password-hashing.argon2.parallelism:1}") int argon2Parallelism) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKb, argon2Iterations));
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalArgumentException("Неизвестный алгоритм хеширования паролей: " + algorithm);
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -57,6 +79,9 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable()) // Отключение CSRF
                 .authorizeHttpRequests(auth -> auth
+                        // ответ из CompletableFuture отдаётся в ASYNC-диспатче, запрос уже проверен при первом проходе
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/api/auth/register").permitAll() // Запросы без токена
                         .requestMatchers("/api/auth/login").permitAll()
                         .requestMatchers("/api/auth/confirm").permitAll()
@@ -0,0 +1,64 @@
+package net.javaguides.springboot.config;
+
+import net.javaguides.springboot.service.KafkaProducerService;
+import net.javaguides.springboot.service.TokenBlacklistService;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Configuration
+public class TokenBlacklistConfig {
+
+    // Подписка на отзывы токенов, сделанные другими репликами.
+    // О каждой (пере)подписке сообщаем сервису: пропущенные за разрыв отзывы он подхватит перестроением фильтра
+    @Bean
+    public RedisMessageListenerContainer tokenBlacklistListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         TokenBlacklistService tokenBlacklistService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new BlacklistChannelListener(tokenBlacklistService),
+                new ChannelTopic(TokenBlacklistService.CHANNEL));
+        return container;
+    }
+
+    private static final class BlacklistChannelListener implements MessageListener, SubscriptionListener {
+
+        private final TokenBlacklistService tokenBlacklistService;
+
+        BlacklistChannelListener(TokenBlacklistService tokenBlacklistService) {
+            this.tokenBlacklistService = tokenBlacklistService;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            tokenBlacklistService.onBlacklisted(new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            tokenBlacklistService.onSubscribed();
+        }
+    }
+
+    // Новые реплики company-vacancy-service читают топик с начала, поэтому отзывы
+    // должны храниться не меньше времени жизни токена (неделя) - берём с запасом
+    @Bean
+    public NewTopic tokenRevocationsTopic() {
+        return TopicBuilder.name(KafkaProducerService.TOPIC_TOKEN_REVOCATIONS)
+                .partitions(1)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofDays(8).toMillis()))
+                .build();
+    }
+}
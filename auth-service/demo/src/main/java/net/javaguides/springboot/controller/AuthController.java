@@ -1,7 +1,6 @@
 package net.javaguides.springboot.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import net.javaguides.springboot.dto.ResetPasswordDTO;
@@ -9,12 +8,13 @@ import net.javaguides.springboot.dto.UserGetOneDTO;
 import net.javaguides.springboot.model.User;
 import net.javaguides.springboot.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -32,59 +32,68 @@ public class AuthController {
 
     // register user
     @PostMapping("/register")
-    public ResponseEntity<Map<String, Object>> createUser(@Valid @RequestBody User user) throws ExecutionException, InterruptedException, JsonProcessingException {
-        return authService.createUser(user).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> createUser(@Valid @RequestBody User user) throws JsonProcessingException {
+        return authService.createUser(user);
     }
 
     // confirm account
     @GetMapping("/confirm")
-    public ResponseEntity<Map<String, Object>> confirmEmailUser(@RequestParam String token) throws ExecutionException, InterruptedException {
-        return authService.confirmEmailUser(token).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> confirmEmailUser(@RequestParam String token) {
+        return authService.confirmEmailUser(token);
     }
 
     // login and authenticate
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody @Valid Map<String, String> loginRequest) throws ExecutionException, InterruptedException {
-        return authService.login(loginRequest).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@RequestBody @Valid Map<String, String> loginRequest) {
+        return authService.login(loginRequest);
     }
 
     // change in your profile (not @Valid else drop)
     @PutMapping("/profile")
-    public ResponseEntity<Map<String, Object>> updateOwnProfile(HttpServletRequest request, @RequestBody @Valid UserGetOneDTO userGetOneDTO) throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateOwnProfile(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                                                   @RequestBody @Valid UserGetOneDTO userGetOneDTO) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        return authService.updateOwnProfile(request, userGetOneDTO, currentUsername).get();
+        return authService.updateOwnProfile(extractToken(authorization), userGetOneDTO, currentUsername);
     }
 
     @PutMapping("/profile/change-login")
-    public ResponseEntity<Map<String, Object>> updateLogin(HttpServletRequest request, @RequestBody @Valid Map<String, String> loginRequest) throws ExecutionException, InterruptedException {
-        return authService.updateLogin(request, loginRequest).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateLogin(@RequestBody @Valid Map<String, String> loginRequest) {
+        return authService.updateLogin(loginRequest);
     }
 
     // confirm change email
     @GetMapping("/confirm-email-change")
-    public ResponseEntity<Map<String, Object>> confirmEmailChange(HttpServletRequest request, @RequestParam String token) throws ExecutionException, InterruptedException {
-        return authService.confirmEmailChange(token).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> confirmEmailChange(HttpServletRequest request, @RequestParam String token) {
+        return authService.confirmEmailChange(token);
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>>logout(HttpServletRequest request, HttpServletResponse response) throws ExecutionException, InterruptedException {
-        return authService.logout(request, response).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return authService.logout(extractToken(authorization));
     }
 
     // password recovery
     @PostMapping("/forgot-password")
-    public ResponseEntity<Map<String, Object>> requestPasswordReset(@RequestBody Map<String, String> loginRequest) throws ExecutionException, InterruptedException {
-        return authService.forgotPassword(loginRequest).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> requestPasswordReset(@RequestBody Map<String, String> loginRequest) {
+        return authService.forgotPassword(loginRequest);
     }
 
     @PostMapping("/confirm-reset-password")
-    public ResponseEntity<Map<String, Object>> confirmPasswordReset(@RequestParam String token, @RequestBody @Valid ResetPasswordDTO resetPasswordDTO) throws ExecutionException, InterruptedException {
-        return authService.resetPassword(token, resetPasswordDTO).get();
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> confirmPasswordReset(@RequestParam String token, @RequestBody @Valid ResetPasswordDTO resetPasswordDTO) {
+        return authService.resetPassword(token, resetPasswordDTO);
     }
 
     @GetMapping("/profile")
-    public ResponseEntity<Map<String, Object>> getProfile() throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getProfile() {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        return authService.getInfoAboutUser(currentUsername).get();
+        return authService.getInfoAboutUser(currentUsername);
+    }
+
+    // токен берётся здесь, в потоке запроса: методы сервиса @Async, запрос в executor не передаём
+    private static String extractToken(String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return authorization.substring(7);
+        }
+        return null;
     }
 }
\ No newline at end of file
@@ -17,7 +17,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -34,32 +34,32 @@ public class ResumeController {
     }
 
     @PostMapping("/resume")
-    public Resume createResume(@Valid @RequestBody CreateResumeRequest createResumeRequest, @RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException, JsonProcessingException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return resumeService.createResume(createResumeRequest, token).get();
+    public CompletableFuture<Resume> createResume(@Valid @RequestBody CreateResumeRequest createResumeRequest) throws JsonProcessingException {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return resumeService.createResume(createResumeRequest, currentUsername);
     }
 
     @GetMapping("/resume/{id}")
-    public Resume getResume(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return resumeService.getResume(id).get();
+    public CompletableFuture<Resume> getResume(@PathVariable Long id) {
+        return resumeService.getResume(id);
     }
 
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @GetMapping("/resume")
-    public List<Resume> getAllResume() throws ExecutionException, InterruptedException {
-        return resumeService.getAllResume().get();
+    public CompletableFuture<List<Resume>> getAllResume() {
+        return resumeService.getAllResume();
     }
 
     @PutMapping("/resume/{id}")
-    public Resume putResume(@Valid @RequestBody CreateResumeRequest createResumeRequest, @PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return resumeService.putResume(createResumeRequest, token, id).get();
+    public CompletableFuture<Resume> putResume(@Valid @RequestBody CreateResumeRequest createResumeRequest, @PathVariable Long id) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return resumeService.putResume(createResumeRequest, currentUsername, id);
     }
 
     @DeleteMapping("/resume/{id}")
-    public ReturnStatusDeleteDto deleteResume(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return resumeService.deleteResume(id, token).get();
+    public CompletableFuture<ReturnStatusDeleteDto> deleteResume(@PathVariable Long id) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return resumeService.deleteResume(id, currentUsername);
     }
 
 }
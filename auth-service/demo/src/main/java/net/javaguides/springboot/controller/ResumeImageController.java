@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -62,8 +63,8 @@ public class ResumeImageController {
 
     @Transactional
     @DeleteMapping("/resume-image/{resumeImageId}/content")
-    public ResponseEntity<ReturnStatusDeleteDto> delResumeImageContent(@PathVariable Long resumeImageId, @RequestHeader("Authorization") String authorizationHeader) throws IOException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return resumeImageService.delResumeImageContent(resumeImageId, token);
+    public ResponseEntity<ReturnStatusDeleteDto> delResumeImageContent(@PathVariable Long resumeImageId) throws IOException {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return resumeImageService.delResumeImageContent(resumeImageId, currentUsername);
     }
 }
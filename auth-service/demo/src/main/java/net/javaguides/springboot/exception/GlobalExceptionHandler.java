@@ -1,6 +1,7 @@
 package net.javaguides.springboot.exception;
 
 import net.javaguides.springboot.model.AuthResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -33,6 +34,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    // пул хеширования паролей переполнен - клиент может повторить запрос
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<AuthResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        AuthResponse response = new AuthResponse(false, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<AuthResponse> handleRuntimeException(RuntimeException ex) {
         // Формируем ответ с ошибкой
@@ -0,0 +1,44 @@
+package net.javaguides.springboot.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+// Событие для Kafka, записанное в той же транзакции, что и изменение сущности (transactional outbox).
+// В Kafka его отправляет OutboxRelay и удаляет строку после подтверждения брокера.
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    @Id
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    private String eventKey; // ключ сообщения - id агрегата: события одной сущности попадают в одну партицию
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @CreationTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false, updatable = false)
+    private Date createdAt;
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(String topic, String eventKey, String payload) {
+        this.topic = topic;
+        this.eventKey = eventKey;
+        this.payload = payload;
+    }
+}
@@ -11,7 +11,9 @@ import lombok.Setter;
 public class ResumeImage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "resume_image_seq")
+    @SequenceGenerator(name = "resume_image_seq", sequenceName = "resume_image_seq", allocationSize = 50)
     private Long resumeImageId;
 
     @Column(nullable = false)
@@ -11,7 +11,9 @@ import lombok.*;
 @Table(name = "\"user\"")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Long user_id;
 
     @NotNull
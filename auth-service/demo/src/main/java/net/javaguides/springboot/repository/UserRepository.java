@@ -2,8 +2,12 @@ package net.javaguides.springboot.repository;
 
 import net.javaguides.springboot.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -13,4 +17,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByLogin(String login);
 
     Optional<User> findByPendingLogin(String newEmail);
+
+    // обновляем хеш, только если пароль не успели сменить с момента входа
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.user_id = :id AND u.password = :oldPassword")
+    int replacePasswordHash(@Param("id") Long id,
+                            @Param("oldPassword") String oldPassword,
+                            @Param("newPassword") String newPassword);
 }
@@ -1,11 +1,10 @@
 package net.javaguides.springboot.service;
 
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import net.javaguides.springboot.dto.ResetPasswordDTO;
 import net.javaguides.springboot.dto.UserGetOneDTO;
 import net.javaguides.springboot.exception.ResourceNotFoundException;
+import net.javaguides.springboot.exception.ServiceOverloadedException;
 import net.javaguides.springboot.model.Role;
 import net.javaguides.springboot.model.User;
 import net.javaguides.springboot.repository.RoleRepository;
@@ -16,8 +15,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.authentication.DisabledException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,29 +29,32 @@ import java.util.regex.Pattern;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final PasswordUpgradeService passwordUpgradeService;
     private final RoleRepository roleRepository;
     private final JwtUtil jwtUtil; // Добавьте JwtUtil
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
     private final TokenBlacklistService tokenBlacklistService;
     private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
 
     // Конструктор для инъекции зависимостей
     @Autowired
     public AuthService(UserRepository userRepository,
-                       BCryptPasswordEncoder passwordEncoder,
+                       PasswordHashingService passwordHashingService,
+                       PasswordUpgradeService passwordUpgradeService,
                        RoleRepository roleRepository,
                        JwtUtil jwtUtil,
-                       BCryptPasswordEncoder bCryptPasswordEncoder,
                        TokenBlacklistService tokenBlacklistService,
-                       KafkaProducerService kafkaProducerService) {
+                       KafkaProducerService kafkaProducerService,
+                       TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.passwordUpgradeService = passwordUpgradeService;
         this.roleRepository = roleRepository;
         this.jwtUtil = jwtUtil;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
         this.tokenBlacklistService = tokenBlacklistService;
         this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Async
@@ -63,9 +65,7 @@ public class AuthService {
             response.put("message", "Невалидный email!");
             return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response));
         }
-        String token = registerUser(user);
-
-        kafkaProducerService.sendUserRegistrationEvent(user.getLogin(), token); // отправка события в кафку
+        registerUser(user); // событие о регистрации пишется вместе с пользователем
 
 //        emailService.sendVerificationEmail(user.getLogin(), token);
         response.put("created", Boolean.TRUE);
@@ -116,6 +116,8 @@ public class AuthService {
             errorResponse.put("authenticated", Boolean.FALSE);
             errorResponse.put("error", "Аккаунт не подтвержден! Подтвердите через электронную почту.");
             return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse));
+        } catch (ServiceOverloadedException e) {
+            throw e; // 503 в GlobalExceptionHandler, а не "неверный пароль"
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("authenticated", Boolean.FALSE);
@@ -151,7 +153,7 @@ public class AuthService {
     }
 
     @Async
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateOwnProfile(HttpServletRequest request, UserGetOneDTO userGetOneDTO, String currentUsername) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateOwnProfile(String token, UserGetOneDTO userGetOneDTO, String currentUsername) {
         User existingUser = userRepository.findByLogin(currentUsername)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден!"));
         //логика с ролью
@@ -165,11 +167,10 @@ public class AuthService {
             throw new ResourceNotFoundException("Нет доступа!");
         }
         Map<String, Object> response = new HashMap<>();
-        if (userGetOneDTO.getPassword() != null) { existingUser.setPassword(bCryptPasswordEncoder.encode(userGetOneDTO.getPassword())); }
+        if (userGetOneDTO.getPassword() != null) { existingUser.setPassword(passwordHashingService.encode(userGetOneDTO.getPassword())); }
         userRepository.save(existingUser);
         String newToken = jwtUtil.generateToken(existingUser.getLogin(), existingUser.getRole().getRole_id());
 
-        String token = extractToken(request);
         tokenBlacklistService.addToBlacklist(token);
 
         response.put("user", existingUser);
@@ -179,7 +180,7 @@ public class AuthService {
 
     // !
     @Async
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateLogin(HttpServletRequest request, Map<String, String> loginRequest) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateLogin(Map<String, String> loginRequest) {
         String login_old = loginRequest.get("login_old");
         User existingUser = userRepository.findByLogin(login_old)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден!"));
@@ -196,8 +197,10 @@ public class AuthService {
             existingUser.setPendingLogin(login);
 
             // emailService.sendConfirmationChangeEmail(existingUser.getPendingLogin(), newToken);
-            userRepository.save(existingUser);
-            kafkaProducerService.sendUserChangeEvent(existingUser.getPendingLogin(), newToken);
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.save(existingUser);
+                kafkaProducerService.sendUserChangeEvent(existingUser.getUser_id(), existingUser.getPendingLogin(), newToken);
+            });
 
             // String token = extractToken(request);
             // tokenBlacklistService.addToBlacklist(token);
@@ -209,9 +212,8 @@ public class AuthService {
     }
 
     @Async
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> logout(HttpServletRequest request, HttpServletResponse response) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> logout(String token) {
         // Выполняем выход из системы
-        String token = extractToken(request);
         tokenBlacklistService.addToBlacklist(token); // add to reddis black list
         Map<String, Object> responses = new HashMap<>();
         responses.put("success", true);
@@ -232,7 +234,7 @@ public class AuthService {
                 .orElseThrow(() -> new RuntimeException("Пользователя с указанной почтой не существует!"));
         String newToken = jwtUtil.generateToken(email, user.getRole().getRole_id());
 
-        kafkaProducerService.sendUserForgotEvent(user.getLogin(), newToken);
+        kafkaProducerService.sendUserForgotEvent(user.getUser_id(), user.getLogin(), newToken);
         response.put("message", "Письмо с инструкцией по восстановлению пароля отправлено на указанный адрес электронной почты!");
         return CompletableFuture.completedFuture(ResponseEntity.ok(response));
     }
@@ -253,7 +255,7 @@ public class AuthService {
         Optional<User> userOpt = userRepository.findByLogin(email);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            user.setPassword(bCryptPasswordEncoder.encode(resetPasswordDTO.getPassword())); // ставим новый пароль
+            user.setPassword(passwordHashingService.encode(resetPasswordDTO.getPassword())); // ставим новый пароль
             userRepository.save(user);
             response.put("success", true);
             response.put("message", "Пароль успешно изменён!");
@@ -282,14 +284,6 @@ public class AuthService {
     }
 
     // METHODS
-    private String extractToken(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
-        }
-        return null;
-    }
-
     public void checkLoginUnique(User user) {
         if (userRepository.existsByLogin(user.getLogin())) {
             User existingUser = userRepository.findByLogin(user.getLogin())
@@ -308,7 +302,7 @@ public class AuthService {
     public String registerUser(User user) {
         checkLoginUnique(user); // проверка уникальности
 
-        String hashedPassword = passwordEncoder.encode(user.getPassword());
+        String hashedPassword = passwordHashingService.encode(user.getPassword());
         User newUser = new User(user.getLogin(), hashedPassword, user.getRole());
         newUser.setEnabled(false);
         newUser.setPendingLogin(null);
@@ -316,16 +310,22 @@ public class AuthService {
         Optional<Role> optionalRole = roleRepository.findById(2L);
         if (optionalRole.isPresent()) { newUser.setRole(optionalRole.get()); }
         else { throw new RuntimeException("Роль не найдена!"); }
-        userRepository.save(newUser);
-
-        return jwtUtil.generateToken(newUser.getLogin(), newUser.getRole().getRole_id());
+        String token = jwtUtil.generateToken(newUser.getLogin(), newUser.getRole().getRole_id());
+
+        // пользователь и событие о регистрации - одной транзакцией (outbox): без пользователя письмо не уйдёт.
+        // Хеширование выше, вне транзакции: соединение с базой не держится, пока считается BCrypt
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.save(newUser);
+            kafkaProducerService.sendUserRegistrationEvent(newUser.getUser_id(), newUser.getLogin(), token);
+        });
+        return token;
     }
 
     public String authenticateUser(String login, String password) {
         User user = userRepository.findByLogin(login)
                .orElseThrow(() -> new RuntimeException("Неверный логин или пароль!"));
 
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHashingService.matches(password, user.getPassword())) {
             throw new RuntimeException("Неверный логин или пароль!");
         }
 
@@ -333,6 +333,11 @@ public class AuthService {
             throw new DisabledException("Аккаунт не подтвержден. Проверьте почту.");
         }
 
+        // пароль верный - перехешируем текущими параметрами в фоне, не задерживая ответ
+        if (passwordHashingService.upgradeEncoding(user.getPassword())) {
+            passwordUpgradeService.rehash(user.getUser_id(), user.getPassword(), password);
+        }
+
         return jwtUtil.generateToken(user.getLogin(), user.getRole().getRole_id());
     }
 
@@ -7,7 +7,7 @@ import net.javaguides.springboot.repository.RoleRepository;
 import net.javaguides.springboot.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -15,15 +15,15 @@ public class DataInitializer {
 
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
 
     @Autowired
     public DataInitializer(RoleRepository roleRepository,
                            UserRepository userRepository,
-                           BCryptPasswordEncoder bCryptPasswordEncoder) {
+                           PasswordEncoder passwordEncoder) {
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordEncoder = passwordEncoder;
     }
 
     @PostConstruct
@@ -37,7 +37,7 @@ public class DataInitializer {
             roleRepository.save(role3);
         }
         if (userRepository.count() == 0) {
-            String pass = bCryptPasswordEncoder.encode("Dimka2003");
+            String pass = passwordEncoder.encode("Dimka2003");
 
             User user1 = new User("dima20030617@mail.ru", pass, role1);
             user1.setEnabled(true);
@@ -2,6 +2,7 @@ package net.javaguides.springboot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboot.dto.TokenRevokedEvent;
 import net.javaguides.springboot.dto.UserRegistrationEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,51 +15,71 @@ public class KafkaProducerService {
     private static final String TOPIC = "user-registration";
     private static final String TOPIC2 = "user-change-event";
     private static final String TOPIC3 = "user-forgot-event";
+    public static final String TOPIC_TOKEN_REVOCATIONS = "token-revocations";
     private final ObjectMapper objectMapper;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxService outboxService;
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
 
     @Autowired
-    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                                OutboxService outboxService) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.outboxService = outboxService;
     }
 
-    public void sendUserRegistrationEvent(String login, String token) {
+    // письма notification-service идут через outbox: событие сохраняется в транзакции вызывающего кода
+
+    public void sendUserRegistrationEvent(Long userId, String login, String token) {
         UserRegistrationEvent event = new UserRegistrationEvent();
         event.setLogin(login);
         event.setToken(token);
 
         try {
             String message = objectMapper.writeValueAsString(event); // Сериализация в JSON
-            kafkaTemplate.send(TOPIC, message); // Отправка в Kafka
+            outboxService.add(TOPIC, userId.toString(), message); // в Kafka после коммита (OutboxRelay)
         } catch (JsonProcessingException e) {
             logger.error("An error occurred", e);
         }
     }
 
-    public void sendUserChangeEvent(String newLogin, String token) {
+    public void sendUserChangeEvent(Long userId, String newLogin, String token) {
         UserRegistrationEvent event = new UserRegistrationEvent();
         event.setLogin(newLogin);
         event.setToken(token);
 
         try {
             String message = objectMapper.writeValueAsString(event); // Сериализация в JSON
-            kafkaTemplate.send(TOPIC2, message); // Отправка в Kafka
+            outboxService.add(TOPIC2, userId.toString(), message); // в Kafka после коммита (OutboxRelay)
         } catch (JsonProcessingException e) {
             logger.error("An error occurred", e);
         }
     }
 
-    public void sendUserForgotEvent(String newLogin, String token) {
+    public void sendUserForgotEvent(Long userId, String newLogin, String token) {
         UserRegistrationEvent event = new UserRegistrationEvent();
         event.setLogin(newLogin);
         event.setToken(token);
 
         try {
             String message = objectMapper.writeValueAsString(event); // Сериализация в JSON
-            kafkaTemplate.send(TOPIC3, message); // Отправка в Kafka
+            outboxService.add(TOPIC3, userId.toString(), message); // в Kafka после коммита (OutboxRelay)
+        } catch (JsonProcessingException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    // отзыв токена для реплик company-vacancy-service: сразу, транзакции в базе за ним нет (blacklist в Redis)
+    public void sendTokenRevokedEvent(String digest, long expiresAt) {
+        TokenRevokedEvent event = new TokenRevokedEvent();
+        event.setDigest(digest);
+        event.setExpiresAt(expiresAt);
+
+        try {
+            String message = objectMapper.writeValueAsString(event); // Сериализация в JSON
+            kafkaTemplate.send(TOPIC_TOKEN_REVOCATIONS, digest, message); // Отправка в Kafka
         } catch (JsonProcessingException e) {
             logger.error("An error occurred", e);
         }
@@ -0,0 +1,39 @@
+package net.javaguides.springboot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Переносит outbox_event в Kafka. Запускается на всех репликах, но пачку отправляет одна (advisory lock),
+// чтобы не нарушить порядок событий одного агрегата.
+// Пока пачки полные - берёт следующую сразу, иначе ждёт outbox.relay.interval.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxService outboxService;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public OutboxRelay(OutboxService outboxService) {
+        this.outboxService = outboxService;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:100ms}")
+    public void relay() {
+        try {
+            while (outboxService.relayBatch() == batchSize) {
+                log.debug("outbox relay: full batch sent, taking the next one");
+            }
+        } catch (RuntimeException e) {
+            // база или брокер недоступны - строки остаются в outbox до следующего запуска
+            log.error("outbox relay failed", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.javaguides.springboot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.exception.ServiceOverloadedException;
+import net.javaguides.springboot.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+// Перехеширование пароля после успешного входа, если хеш создан устаревшими параметрами
+@Slf4j
+@Service
+public class PasswordUpgradeService {
+
+    private final PasswordHashingService passwordHashingService;
+    private final UserRepository userRepository;
+
+    @Autowired
+    public PasswordUpgradeService(PasswordHashingService passwordHashingService, UserRepository userRepository) {
+        this.passwordHashingService = passwordHashingService;
+        this.userRepository = userRepository;
+    }
+
+    @Async
+    public void rehash(Long userId, String oldHash, String rawPassword) {
+        try {
+            String newHash = passwordHashingService.encode(rawPassword);
+            if (userRepository.replacePasswordHash(userId, oldHash, newHash) == 1) {
+                log.debug("password hash upgraded for user {}", userId);
+            }
+        } catch (ServiceOverloadedException e) {
+            // пул хеширования занят логинами - обновим при следующем входе
+            log.debug("password hash upgrade postponed for user {}", userId);
+        }
+    }
+}
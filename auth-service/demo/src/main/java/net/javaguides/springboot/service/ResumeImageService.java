@@ -9,7 +9,6 @@ import net.javaguides.springboot.model.User;
 import net.javaguides.springboot.repository.ResumeImageRepository;
 import net.javaguides.springboot.repository.ResumeRepository;
 import net.javaguides.springboot.repository.UserRepository;
-import net.javaguides.springboot.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -27,19 +26,17 @@ public class ResumeImageService {
     private final YandexStorageService yandexStorageService;
     private final PresignedUrlService presignedUrlService;
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
     @Autowired
 
     public ResumeImageService(ResumeImageRepository resumeImageRepository,
                               ResumeRepository resumeRepository, YandexStorageService yandexStorageService,
                               PresignedUrlService presignedUrlService,
-                              UserRepository userRepository, JwtUtil jwtUtil) {
+                              UserRepository userRepository) {
         this.resumeImageRepository = resumeImageRepository;
         this.resumeRepository = resumeRepository;
         this.yandexStorageService = yandexStorageService;
         this.presignedUrlService = presignedUrlService;
         this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
     }
 
     public ResumeImage uploadResumeImage(Long resumeId, MultipartFile file) throws IOException {
@@ -97,8 +94,7 @@ public class ResumeImageService {
                 .toList();
     }
 
-    public ResponseEntity<ReturnStatusDeleteDto> delResumeImageContent(Long resumeImageId, String token) throws IOException {
-        String username = jwtUtil.extractUsername(token);
+    public ResponseEntity<ReturnStatusDeleteDto> delResumeImageContent(Long resumeImageId, String username) throws IOException {
         User user = userRepository.findByLogin(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Error!"));
         ResumeImage resumeImage = resumeImageRepository.findById(resumeImageId)
@@ -9,7 +9,6 @@ import net.javaguides.springboot.model.User;
 import net.javaguides.springboot.repository.ResumeRepository;
 import net.javaguides.springboot.repository.RoleRepository;
 import net.javaguides.springboot.repository.UserRepository;
-import net.javaguides.springboot.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -29,21 +28,18 @@ public class ResumeService {
     private final UserRepository userRepository;
 
     private final ResumeRepository resumeRepository;
-    private final JwtUtil jwtUtil;
 
     // Конструктор для инъекции зависимостей
     @Autowired
     public ResumeService(UserRepository userRepository,
-                         ResumeRepository resumeRepository, JwtUtil jwtUtil) {
+                         ResumeRepository resumeRepository) {
         this.userRepository = userRepository;
         this.resumeRepository = resumeRepository;
-        this.jwtUtil = jwtUtil;
     }
 
     @Async
     @Transactional
-    public CompletableFuture<Resume> createResume(CreateResumeRequest request, String token) {
-        String username = jwtUtil.extractUsername(token);
+    public CompletableFuture<Resume> createResume(CreateResumeRequest request, String username) {
 
         // Загрузка пользователя происходит в текущей транзакции
         User user = userRepository.findByLogin(username)
@@ -79,8 +75,7 @@ public class ResumeService {
     }
 
     @Async
-    public CompletableFuture<Resume> putResume(CreateResumeRequest request, String token, Long id) {
-        String username = jwtUtil.extractUsername(token);
+    public CompletableFuture<Resume> putResume(CreateResumeRequest request, String username, Long id) {
         User user = userRepository.findByLogin(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден!"));
         if (!Objects.equals(user.getUser_id(), id)) {
@@ -109,9 +104,8 @@ public class ResumeService {
 
 
     @Async
-    public CompletableFuture<ReturnStatusDeleteDto> deleteResume(Long id, String token) {
+    public CompletableFuture<ReturnStatusDeleteDto> deleteResume(Long id, String username) {
 
-        String username = jwtUtil.extractUsername(token);
         User user = userRepository.findByLogin(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Error!"));
         if (!Objects.equals(user.getUser_id(), id)) {
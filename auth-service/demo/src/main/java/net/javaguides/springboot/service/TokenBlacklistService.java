@@ -1,24 +1,172 @@
 package net.javaguides.springboot.service;
 
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.util.DigestBloomFilter;
+import net.javaguides.springboot.util.TokenDigest;
+import net.javaguides.springboot.util.VerifiedTokenCache;
+import net.javaguides.springboot.util.VerifiedTokenCache.VerifiedToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+// Черный список отозванных токенов. В Redis хранится только отпечаток токена,
+// а локальный фильтр Блума отсекает заведомо чистые токены без похода в Redis.
+// Фильтр пополняется через pub/sub (канал CHANNEL) и периодически перестраивается по SCAN,
+// чтобы забыть истекшие записи и подхватить пропущенные сообщения.
+// Сообщения, опубликованные, пока подписки не было, теряются, поэтому после переподключения
+// фильтр сразу сбрасывается (до перестроения каждый токен проверяется в Redis) и перестраивается.
+@Slf4j
 @Service
 public class TokenBlacklistService {
 
+    public static final String CHANNEL = "token-blacklist";
+
+    private static final String KEY_PREFIX = "blacklist:";
+    private static final Duration TTL = Duration.ofDays(7); // максимальное время жизни токена
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // старый формат: ключ - сам токен, сериализованный JdkSerializationRedisSerializer
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+
+    @Value("${token-blacklist.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${token-blacklist.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // null, пока фильтр не загружен - тогда каждый запрос проверяется в Redis
+    private volatile DigestBloomFilter filter;
+    // фильтр, который сейчас перестраивается: новые отпечатки пишутся и в него
+    private volatile DigestBloomFilter rebuilding;
+    // первая подписка на CHANNEL уже была: следующие - переподключения
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
     // Добавление токена в черный список
     public void addToBlacklist(String token) {
-        redisTemplate.opsForValue().set(token, "invalid", Duration.ofMinutes(60*24*7)); // неделя
+        String digest = TokenDigest.of(token);
+        long expiresAt = expiresAt(token);
+        Duration ttl = Duration.ofMillis(Math.max(1000, expiresAt - System.currentTimeMillis()));
+        stringRedisTemplate.opsForValue().set(KEY_PREFIX + digest, "invalid", ttl);
+        onBlacklisted(digest);
+        stringRedisTemplate.convertAndSend(CHANNEL, digest); // остальные реплики
+        verifiedTokenCache.evict(token); // сразу убираем из кэша проверенных токенов
+        kafkaProducerService.sendTokenRevokedEvent(digest, expiresAt); // company-vacancy-service
+    }
+
+    // токен только что прошёл фильтр, поэтому его exp почти всегда уже есть в кэше
+    private long expiresAt(String token) {
+        VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified == null || verified.getExpiresAtMillis() == Long.MAX_VALUE) {
+            return System.currentTimeMillis() + TTL.toMillis();
+        }
+        return verified.getExpiresAtMillis();
     }
 
     // Проверка, находится ли токен в черном списке
     public boolean isTokenBlacklisted(String token) {
-        return redisTemplate.hasKey(token);
+        String digest = TokenDigest.of(token);
+        DigestBloomFilter current = filter;
+        if (current != null && !current.mightContain(digest)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(KEY_PREFIX + digest));
+    }
+
+    // Сообщение из канала CHANNEL.
+    // Сначала rebuilding, потом filter: rebuild() публикует новый фильтр до того, как обнуляет rebuilding,
+    // поэтому если rebuilding уже null, чтение filter ниже увидит новый фильтр. В обратном порядке
+    // отпечаток мог попасть только в старый фильтр, а SCAN нового уже пройти мимо ключа.
+    public void onBlacklisted(String digest) {
+        DigestBloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(digest);
+        }
+        DigestBloomFilter current = filter;
+        if (current != null) {
+            current.put(digest);
+        }
+    }
+
+    // Подписка на CHANNEL установлена: при старте или после переподключения к Redis.
+    // Асинхронно: вызывается из потока подписки, SCAN не должен его держать
+    @Async
+    public void onSubscribed() {
+        if (!subscribed.compareAndSet(false, true)) {
+            log.warn("token blacklist channel resubscribed, rebuilding filter");
+            filter = null;
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        migrateLegacyEntries();
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${token-blacklist.bloom.rebuild-interval:1h}",
+            initialDelayString = "${token-blacklist.bloom.rebuild-interval:1h}")
+    public synchronized void rebuild() {
+        DigestBloomFilter rebuilt = new DigestBloomFilter(expectedInsertions, falsePositiveRate);
+        rebuilding = rebuilt;
+        long count = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                rebuilt.put(cursor.next().substring(KEY_PREFIX.length()));
+                count++;
+            }
+        } catch (RuntimeException e) {
+            // старый фильтр остаётся в силе; если его нет - проверяем всё через Redis
+            log.error("token blacklist filter rebuild failed", e);
+            rebuilding = null;
+            return;
+        }
+        filter = rebuilt; // до обнуления rebuilding, см. onBlacklisted
+        rebuilding = null;
+        log.info("token blacklist filter rebuilt: {} entries", count);
+    }
+
+    // переносим записи, где ключом был полный JWT, в формат с отпечатком
+    private void migrateLegacyEntries() {
+        ScanOptions options = ScanOptions.scanOptions().match("*eyJ*").count(1000).build();
+        long migrated = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String token = cursor.next();
+                Long ttlSeconds = redisTemplate.getExpire(token);
+                if (ttlSeconds != null && ttlSeconds > 0) {
+                    stringRedisTemplate.opsForValue().set(KEY_PREFIX + TokenDigest.of(token), "invalid",
+                            Duration.ofSeconds(ttlSeconds));
+                }
+                redisTemplate.delete(token);
+                migrated++;
+            }
+        } catch (RuntimeException e) {
+            log.error("token blacklist migration failed", e);
+        }
+        if (migrated > 0) {
+            log.info("token blacklist: migrated {} legacy entries", migrated);
+        }
     }
-}
\ No newline at end of file
+}
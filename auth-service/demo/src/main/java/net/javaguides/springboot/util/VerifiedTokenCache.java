@@ -0,0 +1,95 @@
+package net.javaguides.springboot.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Кэш уже проверенных токенов: повторный запрос с тем же токеном не проверяет HMAC и не разбирает JSON.
+// Ключ - SHA-256 от токена (сам токен в памяти не храним), запись живёт не дольше срока действия токена.
+@Component
+public class VerifiedTokenCache {
+
+    private static final String METRIC_NAME = "jwt.verified-tokens";
+
+    private final Cache<String, VerifiedToken> cache;
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") long maxSize,
+                              @Value("${jwt.cache.ttl:10m}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_NAME);
+        Gauge.builder(METRIC_NAME + ".hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Доля запросов, обслуженных без проверки подписи")
+                .register(meterRegistry);
+    }
+
+    public VerifiedToken get(String token) {
+        return cache.getIfPresent(TokenDigest.of(token));
+    }
+
+    public VerifiedToken put(String token, Claims claims) {
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(),
+                claims.get("role_id", Long.class),
+                claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime());
+        cache.put(TokenDigest.of(token), verified);
+        return verified;
+    }
+
+    public void evict(String token) {
+        cache.invalidate(TokenDigest.of(token));
+    }
+
+    @Getter
+    public static class VerifiedToken {
+        private final String username;
+        private final Long roleId;
+        private final long expiresAtMillis;
+
+        public VerifiedToken(String username, Long roleId, long expiresAtMillis) {
+            this.username = username;
+            this.roleId = roleId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    // время жизни записи - меньшее из ttl и остатка срока действия токена
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        private final long ttlNanos;
+
+        TokenExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long untilExpiration = TimeUnit.MILLISECONDS.toNanos(value.getExpiresAtMillis() - System.currentTimeMillis());
+            return Math.max(0, Math.min(ttlNanos, untilExpiration));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+-- Схема на момент перехода с ddl-auto=update на миграции.
+-- Существующие базы помечаются этой версией (spring.flyway.baseline-on-migrate) и её не выполняют.
+
+CREATE TABLE role (
+    role_id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    title   VARCHAR(255),
+    PRIMARY KEY (role_id)
+);
+
+CREATE TABLE "user" (
+    user_id       BIGINT       NOT NULL,
+    enabled       BOOLEAN      NOT NULL,
+    login         VARCHAR(255) NOT NULL,
+    password      VARCHAR(255) NOT NULL,
+    pending_login VARCHAR(255),
+    role_id       BIGINT       NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_user_login UNIQUE (login),
+    CONSTRAINT fk_user_role FOREIGN KEY (role_id) REFERENCES role
+);
+
+CREATE TABLE resume (
+    resume_id       BIGINT        NOT NULL,
+    birthday        TIMESTAMP(6),
+    contact         VARCHAR(255),
+    date            TIMESTAMP(6)  NOT NULL,
+    description     VARCHAR(2000),
+    education       VARCHAR(255)  NOT NULL,
+    full_name       VARCHAR(255)  NOT NULL,
+    gender          VARCHAR(255)  NOT NULL,
+    phone           VARCHAR(255),
+    place_education VARCHAR(255)  NOT NULL,
+    skills          VARCHAR(255),
+    PRIMARY KEY (resume_id),
+    CONSTRAINT fk_resume_user FOREIGN KEY (resume_id) REFERENCES "user"
+);
+
+CREATE TABLE resume_image (
+    resume_image_id BIGINT       NOT NULL,
+    url             VARCHAR(255) NOT NULL,
+    resume_id       BIGINT       NOT NULL,
+    PRIMARY KEY (resume_image_id),
+    CONSTRAINT fk_resume_image_resume FOREIGN KEY (resume_id) REFERENCES resume
+);
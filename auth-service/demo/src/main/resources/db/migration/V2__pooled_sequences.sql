@@ -0,0 +1,11 @@
+-- Последовательности для pooled-генераторов (allocationSize = 50).
+-- В старых базах ключи были IDENTITY, поэтому сдвигаем каждую последовательность за текущий максимум id:
+-- pooled-оптимизатор считает значение последовательности верхней границей блока.
+
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS resume_image_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('user_seq', GREATEST((SELECT COALESCE(MAX(user_id), 0) FROM "user"),
+                                   (SELECT last_value FROM user_seq)));
+SELECT setval('resume_image_seq', GREATEST((SELECT COALESCE(MAX(resume_image_id), 0) FROM resume_image),
+                                           (SELECT last_value FROM resume_image_seq)));
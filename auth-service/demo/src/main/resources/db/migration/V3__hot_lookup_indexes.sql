@@ -0,0 +1,8 @@
+-- Индексы под запросы репозиториев. Имена проверяет MigrationIndexTest (EXPLAIN).
+-- findByLogin / existsByLogin уже покрыты уникальным ограничением на login.
+
+-- Подтверждение смены почты (findByPendingLogin): в индекс попадают только ожидающие подтверждения
+CREATE INDEX IF NOT EXISTS idx_user_pending_login ON "user" (pending_login) WHERE pending_login IS NOT NULL;
+
+-- Картинки резюме (findAllByResume_ResumeId): все выбираемые столбцы в индексе, таблицу не читаем
+CREATE INDEX IF NOT EXISTS idx_resume_image_resume ON resume_image (resume_id) INCLUDE (resume_image_id, url);
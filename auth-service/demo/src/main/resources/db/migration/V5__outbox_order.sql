@@ -0,0 +1,3 @@
+-- Релей выбирает пачки в порядке записи (created_at, id), а не по id:
+-- pooled-последовательность выдаёт id блоками, и порядок id не совпадает с порядком вставки.
+CREATE INDEX IF NOT EXISTS idx_outbox_event_created ON outbox_event (created_at, id);
@@ -0,0 +1,36 @@
+package net.javaguides.springboot;
+
+import net.javaguides.springboot.util.DigestBloomFilter;
+import net.javaguides.springboot.util.TokenDigest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DigestBloomFilterTest {
+
+    @Test
+    void hasNoFalseNegatives() {
+        DigestBloomFilter filter = new DigestBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(TokenDigest.of("revoked-" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(TokenDigest.of("revoked-" + i)));
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearConfigured() {
+        DigestBloomFilter filter = new DigestBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(TokenDigest.of("revoked-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(TokenDigest.of("active-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
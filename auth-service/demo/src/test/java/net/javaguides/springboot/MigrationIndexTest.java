@@ -0,0 +1,76 @@
+package net.javaguides.springboot;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Миграции на чистой базе + планы запросов репозиториев: каждый горячий запрос должен идти по своему индексу.
+// SQL повторяет то, что генерирует Hibernate для соответствующих методов.
+@Testcontainers
+public class MigrationIndexTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            // 50 000 пользователей (почту меняет каждый сотый), у каждого резюме с тремя картинками
+            statement.execute("INSERT INTO role (title) VALUES ('USER')");
+            statement.execute("INSERT INTO \"user\" (user_id, enabled, login, password, pending_login, role_id) " +
+                    "SELECT i, true, 'user' || i || '@example.com', 'hash', " +
+                    "CASE WHEN i % 100 = 0 THEN 'new' || i || '@example.com' END, 1 FROM generate_series(1, 50000) i");
+            statement.execute("INSERT INTO resume (resume_id, date, education, full_name, gender, place_education) " +
+                    "SELECT i, now(), 'education', 'name', 'gender', 'place' FROM generate_series(1, 50000) i");
+            statement.execute("INSERT INTO resume_image (resume_image_id, url, resume_id) " +
+                    "SELECT i, 'https://storage/' || i, i % 50000 + 1 FROM generate_series(1, 150000) i");
+            statement.execute("VACUUM ANALYZE");
+        }
+    }
+
+    @Test
+    void loginLookupsUseIndexes() throws SQLException {
+        assertUsesIndex("SELECT * FROM \"user\" u WHERE u.login = 'user42@example.com'", "uk_user_login");
+        assertUsesIndex("SELECT * FROM \"user\" u WHERE u.pending_login = 'new4200@example.com'",
+                "idx_user_pending_login");
+    }
+
+    @Test
+    void resumeImagesUseCoveringIndex() throws SQLException {
+        assertUsesIndex("SELECT ri.resume_image_id, ri.resume_id, ri.url FROM resume_image ri " +
+                "WHERE ri.resume_id = 42", "idx_resume_image_resume");
+    }
+
+    private static void assertUsesIndex(String sql, String index) throws SQLException {
+        String plan = explain(sql);
+        assertTrue(plan.contains("\"Index Name\": \"" + index + "\""), () -> index + " not used:\n" + plan);
+    }
+
+    private static String explain(String sql) throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
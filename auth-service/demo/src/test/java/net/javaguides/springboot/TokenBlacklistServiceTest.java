@@ -0,0 +1,128 @@
+package net.javaguides.springboot;
+
+import net.javaguides.springboot.service.TokenBlacklistService;
+import net.javaguides.springboot.util.DigestBloomFilter;
+import net.javaguides.springboot.util.TokenDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenBlacklistServiceTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private StringRedisTemplate stringRedisTemplate;
+    private TokenBlacklistService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.scan(any(ScanOptions.class))).thenAnswer(invocation -> cursor(List.of()));
+
+        service = new TokenBlacklistService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenAnswer(invocation -> cursor(List.of()));
+        service.onSubscribed();
+        service.load();
+    }
+
+    @Test
+    void cleanTokenIsNotCheckedInRedis() {
+        assertFalse(service.isTokenBlacklisted(TOKEN));
+        verify(stringRedisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    void revocationMissedWhileDisconnectedIsPickedUpOnResubscribe() {
+        // токен отозван другой репликой, пока подписки не было: сообщение в канал потеряно
+        String key = "blacklist:" + TokenDigest.of(TOKEN);
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenAnswer(invocation -> cursor(List.of(key)));
+        when(stringRedisTemplate.hasKey(key)).thenReturn(true);
+
+        service.onSubscribed();
+
+        assertTrue(service.isTokenBlacklisted(TOKEN));
+    }
+
+    @Test
+    void checksRedisUntilFilterIsRebuiltAfterResubscribe() {
+        String key = "blacklist:" + TokenDigest.of(TOKEN);
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenThrow(new IllegalStateException("redis is loading"));
+        when(stringRedisTemplate.hasKey(key)).thenReturn(true);
+
+        service.onSubscribed();
+
+        assertTrue(service.isTokenBlacklisted(TOKEN));
+    }
+
+    @Test
+    void revocationDuringFilterSwapReachesNewFilter() throws Exception {
+        String digest = TokenDigest.of(TOKEN);
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch scanPassed = new CountDownLatch(1);
+        // Redis ещё пуст, когда SCAN его проходит; отзыв приходит, пока перестроение не завершено
+        Cursor<String> slowScan = cursor(List.of());
+        when(slowScan.hasNext()).thenAnswer(invocation -> {
+            scanning.countDown();
+            assertTrue(scanPassed.await(5, TimeUnit.SECONDS));
+            return false;
+        });
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenReturn(slowScan);
+        when(stringRedisTemplate.hasKey("blacklist:" + digest)).thenReturn(true);
+
+        Thread rebuild = new Thread(service::rebuild);
+        // пока отпечаток пишется в старый фильтр, перестроение успевает подменить фильтр целиком
+        ReflectionTestUtils.setField(service, "filter", new DigestBloomFilter(1000, 0.01) {
+            @Override
+            public void put(String value) {
+                super.put(value);
+                scanPassed.countDown();
+                try {
+                    rebuild.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        rebuild.start();
+        assertTrue(scanning.await(5, TimeUnit.SECONDS));
+
+        service.onBlacklisted(digest);
+        rebuild.join(5000);
+
+        assertTrue(service.isTokenBlacklisted(TOKEN));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(List<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+}
@@ -0,0 +1,62 @@
+package net.javaguides.springboot;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.javaguides.springboot.util.VerifiedTokenCache;
+import net.javaguides.springboot.util.VerifiedTokenCache.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class VerifiedTokenCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCache(100, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    @Test
+    void returnsPrincipalForVerifiedToken() {
+        assertNull(cache.get("token"));
+        cache.put("token", claims("user@example.com", 2L, Duration.ofDays(7)));
+
+        VerifiedToken verified = cache.get("token");
+        assertNotNull(verified);
+        assertEquals("user@example.com", verified.getUsername());
+        assertEquals(2L, verified.getRoleId());
+        assertEquals(0.5, meterRegistry.get("jwt.verified-tokens.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void evictedTokenIsVerifiedAgain() {
+        cache.put("token", claims("user@example.com", 1L, Duration.ofDays(7)));
+        cache.evict("token");
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void doesNotOutliveToken() {
+        cache.put("token", claims("user@example.com", 1L, Duration.ofMillis(-1)));
+
+        assertNull(cache.get("token"));
+    }
+
+    private static Claims claims(String username, Long roleId, Duration validFor) {
+        Claims claims = Jwts.claims().setSubject(username);
+        claims.put("role_id", roleId);
+        claims.setExpiration(new Date(System.currentTimeMillis() + validFor.toMillis()));
+        return claims;
+    }
+}
@@ -0,0 +1,95 @@
+package net.javaguides.springboot.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость проверки JWT на один запрос.
+// perRequestOld - как было: ключ и парсер создаются заново, токен разбирается трижды
+// (isTokenValid, фильтр, сервис); cachedParser - один готовый парсер и один разбор.
+//
+// Запуск (вместе с профилировщиком аллокаций):
+//   mvn -B test-compile
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       net.javaguides.springboot.benchmark.JwtParsingBenchmark
+// Смотреть на ns/op и gc.alloc.rate.norm (байт на операцию).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParsingBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-benchmark-secret-key";
+
+    private String token;
+    private JwtParser cachedParser;
+
+    @Setup
+    public void setUp() {
+        SecretKey key = signingKey();
+        token = Jwts.builder()
+                .setSubject("user@example.com")
+                .claim("role_id", 1L)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7)))
+                .signWith(key)
+                .compact();
+        cachedParser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
+    @Benchmark
+    public String perRequestOld() {
+        parseWithNewParser(); // isTokenValid
+        Claims claims = parseWithNewParser(); // фильтр
+        parseWithNewParser(); // extractUsername в сервисе
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String cachedParser() {
+        return cachedParser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    private Claims parseWithNewParser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static SecretKey signingKey() {
+        return new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtParsingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
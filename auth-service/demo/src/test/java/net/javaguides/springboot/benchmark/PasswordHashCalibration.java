@@ -0,0 +1,73 @@
+package net.javaguides.springboot.benchmark;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+
+// Подбор стоимости хеширования под целевое время на текущем железе (по умолчанию ~100 мс на хеш).
+// Запускать на машине того же класса, что и прод; печатает готовые значения для application.properties.
+//
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       net.javaguides.springboot.benchmark.PasswordHashCalibration [целевое время, мс] [память argon2, КБ]
+public class PasswordHashCalibration {
+
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final int WARMUP = 3;
+    private static final int SAMPLES = 7;
+
+    public static void main(String[] args) {
+        double targetMs = args.length > 0 ? Double.parseDouble(args[0]) : 100;
+        int memoryKb = args.length > 1 ? Integer.parseInt(args[1]) : 16384;
+
+        // берём значение, ближайшее к цели; дальше двойной цели не идём - время только растёт
+        int bestStrength = 8;
+        double bestDistance = Double.MAX_VALUE;
+        for (int strength = 8; strength <= 15; strength++) {
+            double ms = medianMs(new BCryptPasswordEncoder(strength));
+            System.out.printf("bcrypt strength=%d: %.1f ms%n", strength, ms);
+            if (Math.abs(ms - targetMs) < bestDistance) {
+                bestDistance = Math.abs(ms - targetMs);
+                bestStrength = strength;
+            }
+            if (ms > targetMs * 2) {
+                break;
+            }
+        }
+
+        int bestIterations = 1;
+        bestDistance = Double.MAX_VALUE;
+        for (int iterations = 1; iterations <= 20; iterations++) {
+            double ms = medianMs(new Argon2PasswordEncoder(16, 32, 1, memoryKb, iterations));
+            System.out.printf("argon2 memory=%dKB iterations=%d: %.1f ms%n", memoryKb, iterations, ms);
+            if (Math.abs(ms - targetMs) < bestDistance) {
+                bestDistance = Math.abs(ms - targetMs);
+                bestIterations = iterations;
+            }
+            if (ms > targetMs * 2) {
+                break;
+            }
+        }
+
+        System.out.println();
+        System.out.printf("# target ~%.0f ms per hash%n", targetMs);
+        System.out.println("password-hashing.bcrypt-strength=" + bestStrength);
+        System.out.println("password-hashing.argon2.memory-kb=" + memoryKb);
+        System.out.println("password-hashing.argon2.iterations=" + bestIterations);
+    }
+
+    private static double medianMs(PasswordEncoder encoder) {
+        for (int i = 0; i < WARMUP; i++) {
+            encoder.encode(PASSWORD);
+        }
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(PASSWORD);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2] / 1_000_000.0;
+    }
+}
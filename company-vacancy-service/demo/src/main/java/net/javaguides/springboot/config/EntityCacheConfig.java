@@ -0,0 +1,67 @@
+package net.javaguides.springboot.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Response;
+import net.javaguides.springboot.model.Vacancy;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Регионы second-level cache Hibernate (Caffeine через JCache). Каждый регион создаётся здесь со своими
+// TTL и размером; регион, которого нет в списке, Hibernate создать не даст (missing_cache_strategy=fail).
+// Записи других реплик сбрасываются через EntityCacheInvalidationService, TTL ограничивает устаревание сверху.
+@Configuration
+public class EntityCacheConfig {
+
+    // стандартные регионы кэша запросов Hibernate
+    private static final String QUERY_REGION = "default-query-results-region";
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(@Value("${entity-cache.company.ttl:10m}") Duration companyTtl,
+                                           @Value("${entity-cache.company.max-size:10000}") long companyMaxSize,
+                                           @Value("${entity-cache.vacancy.ttl:5m}") Duration vacancyTtl,
+                                           @Value("${entity-cache.vacancy.max-size:50000}") long vacancyMaxSize,
+                                           @Value("${entity-cache.response.ttl:1m}") Duration responseTtl,
+                                           @Value("${entity-cache.response.max-size:50000}") long responseMaxSize,
+                                           @Value("${entity-cache.query.ttl:1m}") Duration queryTtl,
+                                           @Value("${entity-cache.query.max-size:10000}") long queryMaxSize) {
+        // свой менеджер на каждый контекст: общий менеджер по умолчанию не дал бы создать регионы второй раз
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        create(cacheManager, Company.class.getName(), companyTtl, companyMaxSize);
+        create(cacheManager, Vacancy.class.getName(), vacancyTtl, vacancyMaxSize);
+        create(cacheManager, Response.class.getName(), responseTtl, responseMaxSize);
+        create(cacheManager, QUERY_REGION, queryTtl, queryMaxSize);
+        // отметки времени изменения таблиц не должны вытесняться раньше закэшированных запросов
+        create(cacheManager, TIMESTAMPS_REGION, null, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+
+    private static void create(CacheManager cacheManager, String region, Duration ttl, Long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        if (maxSize != null) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        cacheManager.createCache(region, configuration);
+    }
+}
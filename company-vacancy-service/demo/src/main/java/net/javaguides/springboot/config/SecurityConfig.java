@@ -1,5 +1,6 @@
 package net.javaguides.springboot.config;
 
+import jakarta.servlet.DispatcherType;
 import net.javaguides.springboot.util.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -47,6 +48,9 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable) // Отключение CSRF
                 .authorizeHttpRequests(auth -> auth
+                        // ответ из CompletableFuture отдаётся в ASYNC-диспатче, запрос уже проверен при первом проходе
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        .requestMatchers("/actuator/**").permitAll()
                         .anyRequest().authenticated() // Запросы с аутентификацией
 
                 )
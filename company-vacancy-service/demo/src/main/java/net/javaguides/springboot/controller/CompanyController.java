@@ -1,18 +1,18 @@
 package net.javaguides.springboot.controller;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.CompanyCardVersionDto;
 import net.javaguides.springboot.dto.CompanyOneDto;
 import net.javaguides.springboot.service.CompanyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,10 +21,10 @@ import org.springframework.web.bind.annotation.*;
 import net.javaguides.springboot.exception.ResourceNotFoundException;
 import net.javaguides.springboot.model.Company;
 import net.javaguides.springboot.repository.CompanyRepository;
+import net.javaguides.springboot.util.ResourceVersion;
 
 @CrossOrigin(origins = "*")
 @RestController
-@EnableAsync
 @Slf4j
 // base URL
 @RequestMapping("/api/comp-vac/")
@@ -40,67 +40,70 @@ public class CompanyController {
     // get all info about companies
     @PreAuthorize("hasRole('ROLE_1')")
     @GetMapping("/company")
-    public List<Company> getAllCompanies() throws ExecutionException, InterruptedException {
-        return companyService.getAllCompanies().get();
+    public CompletableFuture<List<Company>> getAllCompanies() {
+        return companyService.getAllCompanies();
     }
 
 
     // create a company
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @PostMapping("/company")
-    public Company createCompany(@RequestBody @Valid Company company) throws ExecutionException, InterruptedException {
+    public CompletableFuture<Company> createCompany(@RequestBody @Valid Company company) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
         company.setUserName(currentUsername);
-        return companyService.createCompany(company).get();
+        return companyService.createCompany(company);
     }
 
-    // get one company
+    // get one company, 304 без сборки карточки
     @GetMapping("/company/{id}")
-    public CompanyOneDto getCompanyById(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return companyService.getOneCompany(id).get();
+    public CompletableFuture<ResponseEntity<CompanyOneDto>> getCompanyById(@PathVariable Long id,
+                                                                           @RequestHeader HttpHeaders headers) {
+        return ResourceVersion.respond(headers, companyService.getCompanyCardVersion(id),
+                () -> companyService.getOneCompany(id),
+                card -> new CompanyCardVersionDto(card).toResourceVersion());
     }
 
     // update company
     @PreAuthorize("hasRole('ROLE_1')")
     @PutMapping("/company/{id}")
-    public Company updateCompany(@PathVariable Long id, @RequestBody @Valid Company companyDetails) throws ExecutionException, InterruptedException {
-        return companyService.updateCompany(id, companyDetails).get();
+    public CompletableFuture<Company> updateCompany(@PathVariable Long id, @RequestBody @Valid Company companyDetails) {
+        return companyService.updateCompany(id, companyDetails);
     }
 
     // вереф
     @PreAuthorize("hasRole('ROLE_1')")
     @PutMapping("/company-accept/{id}")
-    public Company acceptCompany(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return companyService.acceptCompany(id).get();
+    public CompletableFuture<Company> acceptCompany(@PathVariable Long id) {
+        return companyService.acceptCompany(id);
     }
 
     // delete company
     @PreAuthorize("hasRole('ROLE_1')")
     @DeleteMapping("/company/{id}")
-    public Map<String, Object> deleteCompany(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return companyService.deleteCompany(id).get();
+    public CompletableFuture<Map<String, Object>> deleteCompany(@PathVariable Long id) {
+        return companyService.deleteCompany(id);
     }
 
 
     @PreAuthorize("hasRole('ROLE_3')")
     @GetMapping("/my-company")
-    public List<Company> getMyCompanies(@RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return companyService.getMyCompanies(token).get();
+    public CompletableFuture<List<Company>> getMyCompanies() {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return companyService.getMyCompanies(currentUsername);
     }
 
     @PreAuthorize("hasRole('ROLE_3')")
     @DeleteMapping("/my-company/{id}")
-    public Map<String, Object> deleteMyCompany(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return companyService.deleteMyCompany(id, token).get();
+    public CompletableFuture<Map<String, Object>> deleteMyCompany(@PathVariable Long id) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return companyService.deleteMyCompany(id, currentUsername);
     }
 
     @PreAuthorize("hasRole('ROLE_3')")
     @PutMapping("/my-company/{id}")
-    public Company updateMyCompany(@PathVariable Long id, @RequestBody @Valid Company company, @RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return companyService.updateMyCompany(id, company, token).get();
+    public CompletableFuture<Company> updateMyCompany(@PathVariable Long id, @RequestBody @Valid Company company) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return companyService.updateMyCompany(id, company, currentUsername);
     }
 
 }
\ No newline at end of file
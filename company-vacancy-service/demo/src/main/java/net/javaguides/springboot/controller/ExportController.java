@@ -0,0 +1,71 @@
+package net.javaguides.springboot.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+@CrossOrigin(origins = "*")
+@RestController
+@Slf4j
+// base URL
+@RequestMapping("/api/comp-vac/")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @Value("${export.timeout:30m}")
+    private Duration exportTimeout;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // full export of vacancies, ?format=ndjson|csv
+    @PreAuthorize("hasRole('ROLE_1')")
+    @GetMapping("/admin/export/vacancies")
+    public ResponseEntity<StreamingResponseBody> exportVacancies(@RequestParam(required = false) String format,
+                                                                 HttpServletRequest request) {
+        return export("vacancies", format, request, exportService::exportVacancies);
+    }
+
+    @PreAuthorize("hasRole('ROLE_1')")
+    @GetMapping("/admin/export/companies")
+    public ResponseEntity<StreamingResponseBody> exportCompanies(@RequestParam(required = false) String format,
+                                                                 HttpServletRequest request) {
+        return export("companies", format, request, exportService::exportCompanies);
+    }
+
+    @PreAuthorize("hasRole('ROLE_1')")
+    @GetMapping("/admin/export/responses")
+    public ResponseEntity<StreamingResponseBody> exportResponses(@RequestParam(required = false) String format,
+                                                                 HttpServletRequest request) {
+        return export("responses", format, request, exportService::exportResponses);
+    }
+
+    // тело пишется в потоке MVC async, поток Tomcat свободен; формат проверяется до начала ответа (400)
+    private ResponseEntity<StreamingResponseBody> export(String name, String format, HttpServletRequest request,
+                                                         BiConsumer<OutputStream, ExportService.Format> writer) {
+        ExportService.Format exportFormat = ExportService.Format.parse(format);
+        // большая выгрузка идёт дольше общего spring.mvc.async.request-timeout
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportTimeout.toMillis());
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + exportFormat.getExtension()).build().toString())
+                .body(out -> writer.accept(out, exportFormat));
+    }
+}
@@ -2,20 +2,20 @@ package net.javaguides.springboot.controller;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.ResponseItemDto;
+import net.javaguides.springboot.dto.ResponsePageDto;
 import net.javaguides.springboot.model.Response;
 import net.javaguides.springboot.service.ResponseService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin(origins = "*")
 @RestController
-@EnableAsync
 @Slf4j
 @RequestMapping("/api/comp-vac/")
 public class ResponseController {
@@ -28,22 +28,23 @@ public class ResponseController {
     }
 
     @PostMapping("/vacancy/{id}/response")
-    public Response createResponse(@PathVariable Long id, @RequestBody @Valid Response response) throws ExecutionException, InterruptedException {
+    public CompletableFuture<Response> createResponse(@PathVariable Long id, @RequestBody @Valid Response response) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        return responseService.createResponse(response, currentUsername, id).get();
+        return responseService.createResponse(response, currentUsername, id);
     }
 
     @GetMapping("/responses")
-    public List<Response> getAllResponsesByUser() throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponsePageDto> getAllResponsesByUser(@RequestParam(required = false) Integer page,
+                                                                    @RequestParam(required = false) Integer size) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        return responseService.getAllResponsesByUser(currentUsername).get();
+        return responseService.getAllResponsesByUser(currentUsername, page, size);
     }
 
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @GetMapping("/responses/{id}")
-    public List<Response> getAllResponsesByVacancy(@PathVariable Long id) throws ExecutionException, InterruptedException {
+    public CompletableFuture<List<ResponseItemDto>> getAllResponsesByVacancy(@PathVariable Long id) {
         String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        return responseService.getAllResponsesByVacancy(id, currentUsername).get();
+        return responseService.getAllResponsesByVacancy(id, currentUsername);
     }
 
 }
@@ -1,80 +1,123 @@
 package net.javaguides.springboot.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import net.javaguides.springboot.dto.VacancyDto;
+import net.javaguides.springboot.dto.VacancyItemDto;
+import net.javaguides.springboot.dto.VacancyPageDto;
+import net.javaguides.springboot.dto.VacancySearchResultDto;
+import net.javaguides.springboot.dto.VacancyVersionDto;
+import net.javaguides.springboot.service.VacancyImportService;
 import net.javaguides.springboot.service.VacancyService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import net.javaguides.springboot.model.Company;
 import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.util.ResourceVersion;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 @CrossOrigin(origins = "*")
 @RestController
-@EnableAsync
 @Slf4j
 // base URL
 @RequestMapping("/api/comp-vac/")
 public class VacancyController {
 
     private final VacancyService vacancyService;
+    private final VacancyImportService vacancyImportService;
 
     @Autowired
-    public VacancyController(VacancyService vacancyService) {
+    public VacancyController(VacancyService vacancyService, VacancyImportService vacancyImportService) {
         this.vacancyService = vacancyService;
+        this.vacancyImportService = vacancyImportService;
     }
 
-    // get all info about vacancies
+    // get vacancies feed (cursor pagination), 304 по версии каталога
     @GetMapping("/vacancy")
-    public List<Vacancy> getAllVacancies() throws ExecutionException, InterruptedException {
-        //CompletableFuture<List<Company>> allCompanies = companyService.getAllCompanies();
-        return vacancyService.getAllVacancies().get();
+    public CompletableFuture<ResponseEntity<VacancyPageDto>> getAllVacancies(@RequestParam(required = false) String cursor,
+                                                                             @RequestParam(required = false) Integer size,
+                                                                             @RequestHeader HttpHeaders headers) {
+        return ResourceVersion.respond(headers, vacancyService.getFeedVersion(),
+                () -> vacancyService.getVacancyFeed(cursor, size));
+    }
+
+    // open vacancies of one company (cursor pagination)
+    @GetMapping("/company/{id}/vacancy")
+    public CompletableFuture<VacancyPageDto> getCompanyVacancies(@PathVariable Long id,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer size) {
+        return vacancyService.getCompanyVacancies(id, cursor, size);
+    }
+
+    // full-text search over open vacancies
+    @GetMapping("/vacancy/search")
+    public CompletableFuture<VacancySearchResultDto> searchVacancies(@RequestParam(required = false) String q,
+                                                                     @RequestParam(required = false) String format,
+                                                                     @RequestParam(required = false) String schedule,
+                                                                     @RequestParam(name = "is_educated", required = false) Boolean isEducated,
+                                                                     @RequestParam(required = false) Integer page,
+                                                                     @RequestParam(required = false) Integer size) {
+        return vacancyService.searchVacancies(q, format, schedule, isEducated, page, size);
     }
 
     @GetMapping("/my-vacancy")
-    public List<Vacancy> getMyVacancies(@RequestHeader("Authorization") String authorizationHeader) throws ExecutionException, InterruptedException {
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-        return vacancyService.getMyVacancies(token).get();
+    public CompletableFuture<List<VacancyItemDto>> getMyVacancies() {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return vacancyService.getMyVacancies(currentUsername);
     }
 
     // get all info about vacancies by admin
     @PreAuthorize("hasRole('ROLE_1')")
     @GetMapping("/admin/vacancy")
-    public List<Vacancy> getAllVacanciesByAdmin() throws ExecutionException, InterruptedException {
-        return vacancyService.getAllVacanciesByAdmin().get();
+    public CompletableFuture<List<VacancyItemDto>> getAllVacanciesByAdmin() {
+        return vacancyService.getAllVacanciesByAdmin();
     }
 
     // create vacancy
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @PostMapping("/vacancy")
-    public Vacancy createVacancy(@RequestBody @Valid VacancyDto vacancyDto) throws ExecutionException, InterruptedException {
-        return vacancyService.createVacancy(vacancyDto).get();
+    public CompletableFuture<Vacancy> createVacancy(@RequestBody @Valid VacancyDto vacancyDto) {
+        return vacancyService.createVacancy(vacancyDto);
+    }
+
+    // bulk import: JSON-массив (application/json) или CSV с заголовком (text/csv), тело читается потоком
+    @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
+    @PostMapping(value = "/vacancy/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public CompletableFuture<Map<String, Object>> importVacancies(HttpServletRequest request) throws IOException {
+        boolean csv = request.getContentType().startsWith("text/csv");
+        return vacancyImportService.importVacancies(request.getInputStream(), csv);
     }
 
-    // get one vacancy
+    // get one vacancy, 304 без загрузки вакансии
     @GetMapping("/vacancy/{id}")
-    public Vacancy getVacancyById(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return vacancyService.getOneVacancy(id).get();
+    public CompletableFuture<ResponseEntity<Vacancy>> getVacancyById(@PathVariable Long id,
+                                                                     @RequestHeader HttpHeaders headers) {
+        return ResourceVersion.respond(headers, vacancyService.getVacancyVersion(id),
+                () -> vacancyService.getOneVacancy(id),
+                vacancy -> new VacancyVersionDto(vacancy).toResourceVersion());
     }
 
     // update vacancy
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @PutMapping("/vacancy/{id}")
-    public Vacancy updateVacancy(@PathVariable Long id, @RequestBody @Valid Vacancy vacancyDetails) throws ExecutionException, InterruptedException {
-        return vacancyService.updateVacancy(id, vacancyDetails).get();
+    public CompletableFuture<Vacancy> updateVacancy(@PathVariable Long id, @RequestBody @Valid Vacancy vacancyDetails) {
+        return vacancyService.updateVacancy(id, vacancyDetails);
     }
 
     // delete vacancy
     @PreAuthorize("hasRole('ROLE_3') || hasRole('ROLE_1')")
     @DeleteMapping("/vacancy/{id}")
-    public Map<String, Object> deleteVacancy(@PathVariable Long id) throws ExecutionException, InterruptedException {
-        return vacancyService.deleteVacancy(id).get();
+    public CompletableFuture<Map<String, Object>> deleteVacancy(@PathVariable Long id) {
+        return vacancyService.deleteVacancy(id);
     }
 }
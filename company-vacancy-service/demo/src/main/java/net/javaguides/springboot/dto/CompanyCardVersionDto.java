@@ -0,0 +1,42 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import net.javaguides.springboot.util.ResourceVersion;
+
+import java.util.Date;
+
+// Версия карточки компании: дата изменения компании, самая новая открытая вакансия и их число.
+// Любое изменение превью меняет хотя бы одно из них: новая или изменённая вакансия поднимает
+// максимальную дату, закрытая или удалённая уменьшает число.
+@Getter
+public class CompanyCardVersionDto {
+    private final Long company_id;
+    private final Date updatedAt;
+    private final Date lastVacancyDate;
+    private final long vacanciesCount;
+
+    public CompanyCardVersionDto(Long company_id, Date updatedAt, Date lastVacancyDate, Long vacanciesCount) {
+        this.company_id = company_id;
+        this.updatedAt = updatedAt;
+        this.lastVacancyDate = lastVacancyDate;
+        this.vacanciesCount = vacanciesCount;
+    }
+
+    // превью отсортировано по дате, первая вакансия в нём - самая новая
+    public CompanyCardVersionDto(CompanyOneDto card) {
+        this(card.getCompany_id(), card.getUpdated_at(),
+                card.getVacancies() == null || card.getVacancies().isEmpty() ? null : card.getVacancies().get(0).getDate(),
+                card.getVacanciesCount());
+    }
+
+    public ResourceVersion toResourceVersion() {
+        long companyMillis = millis(updatedAt);
+        long vacancyMillis = millis(lastVacancyDate);
+        return new ResourceVersion("c" + company_id + "-" + companyMillis + "-" + vacancyMillis + "-" + vacanciesCount,
+                Math.max(companyMillis, vacancyMillis));
+    }
+
+    private static long millis(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+}
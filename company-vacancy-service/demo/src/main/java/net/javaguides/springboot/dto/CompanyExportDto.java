@@ -0,0 +1,40 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Строка выгрузки компаний: все поля компании без коллекции вакансий
+@Getter
+@Setter
+public class CompanyExportDto {
+    private Long company_id;
+    private String name;
+    private String inn;
+    private String kpp;
+    private String ogrn;
+    private String address;
+    private String director;
+    private Date date_reg;
+    private Boolean is_accepted;
+    private String userName;
+    private Date updated_at;
+
+    public CompanyExportDto(Long company_id, String name, String inn, String kpp, String ogrn, String address,
+                            String director, Date date_reg, Boolean is_accepted, String userName, Date updated_at) {
+        this.company_id = company_id;
+        this.name = name;
+        this.inn = inn;
+        this.kpp = kpp;
+        this.ogrn = ogrn;
+        this.address = address;
+        this.director = director;
+        this.date_reg = date_reg;
+        this.is_accepted = is_accepted;
+        this.userName = userName;
+        this.updated_at = updated_at;
+    }
+
+    public CompanyExportDto() {}
+}
@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Getter;
 import lombok.Setter;
 import net.javaguides.springboot.model.Company;
-import net.javaguides.springboot.model.Vacancy;
 
 import java.util.Date;
 import java.util.List;
@@ -21,10 +20,13 @@ public class CompanyOneDto {
     private String director;
     private Date date_reg;
     private Boolean is_accepted;
+    private Date updated_at;
+    // первые открытые вакансии (company.vacancy-preview-size), остальные - GET /company/{id}/vacancy
     @JsonIgnoreProperties({"company"})
-    private List<Vacancy> vacancies;
+    private List<VacancyItemDto> vacancies;
+    private long vacanciesCount; // всего открытых вакансий
 
-    public CompanyOneDto(String name, Long company_id, String inn, String kpp, String ogrn, String address, String director, Date date_reg, Boolean is_accepted, List<Vacancy> vacancies) {
+    public CompanyOneDto(String name, Long company_id, String inn, String kpp, String ogrn, String address, String director, Date date_reg, Boolean is_accepted, List<VacancyItemDto> vacancies, long vacanciesCount) {
         this.name = name;
         this.company_id = company_id;
         this.inn = inn;
@@ -35,6 +37,7 @@ public class CompanyOneDto {
         this.date_reg = date_reg;
         this.is_accepted = is_accepted;
         this.vacancies = vacancies;
+        this.vacanciesCount = vacanciesCount;
     }
 
     public CompanyOneDto(Company company) {
@@ -47,6 +50,7 @@ public class CompanyOneDto {
         this.director = company.getDirector();
         this.date_reg = company.getDate_reg();
         this.is_accepted = company.getIs_accepted();
+        this.updated_at = company.getUpdated_at();
     }
 
     public CompanyOneDto() {}
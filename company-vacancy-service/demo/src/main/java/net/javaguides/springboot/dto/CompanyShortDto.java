@@ -0,0 +1,21 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Компания внутри элемента списка вакансий: ровно те поля, что нужны клиенту
+@Getter
+@Setter
+public class CompanyShortDto {
+    private Long company_id;
+    private String name;
+    private String userName;
+
+    public CompanyShortDto(Long company_id, String name, String userName) {
+        this.company_id = company_id;
+        this.name = name;
+        this.userName = userName;
+    }
+
+    public CompanyShortDto() {}
+}
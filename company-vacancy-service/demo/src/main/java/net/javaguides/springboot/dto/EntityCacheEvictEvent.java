@@ -0,0 +1,14 @@
+package net.javaguides.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class EntityCacheEvictEvent {
+    private String origin; // реплика-отправитель, свои события она не обрабатывает
+    private String entity; // имя сущности Hibernate (полное имя класса)
+    private Long id; // null - весь регион сущности
+}
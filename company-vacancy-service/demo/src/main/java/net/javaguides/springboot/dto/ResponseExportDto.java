@@ -0,0 +1,34 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Строка выгрузки откликов: кто откликнулся и на какую вакансию
+@Getter
+@Setter
+public class ResponseExportDto {
+    private Long response_id;
+    private Date date;
+    private String userName;
+    private Boolean viewed;
+    private Long vacancy_id; // null, если вакансию удалили
+    private String vacancyName;
+    private Long company_id;
+    private String companyName;
+
+    public ResponseExportDto(Long response_id, Date date, String userName, Boolean viewed, Long vacancy_id,
+                             String vacancyName, Long company_id, String companyName) {
+        this.response_id = response_id;
+        this.date = date;
+        this.userName = userName;
+        this.viewed = viewed;
+        this.vacancy_id = vacancy_id;
+        this.vacancyName = vacancyName;
+        this.company_id = company_id;
+        this.companyName = companyName;
+    }
+
+    public ResponseExportDto() {}
+}
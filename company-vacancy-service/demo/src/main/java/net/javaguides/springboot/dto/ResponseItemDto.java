@@ -0,0 +1,30 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Отклик пользователя в списке: только то, что нужно для отображения, без сущностей Vacancy/Company
+@Getter
+@Setter
+public class ResponseItemDto {
+    private Long response_id;
+    private Date date;
+    private Long vacancy_id; // null, если вакансию удалили
+    private String vacancyName;
+    private String vacancyTitle;
+    private String companyName;
+
+    public ResponseItemDto(Long response_id, Date date, Long vacancy_id, String vacancyName,
+                           String vacancyTitle, String companyName) {
+        this.response_id = response_id;
+        this.date = date;
+        this.vacancy_id = vacancy_id;
+        this.vacancyName = vacancyName;
+        this.vacancyTitle = vacancyTitle;
+        this.companyName = companyName;
+    }
+
+    public ResponseItemDto() {}
+}
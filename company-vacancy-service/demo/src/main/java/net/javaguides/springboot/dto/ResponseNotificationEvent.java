@@ -12,6 +12,7 @@ import net.javaguides.springboot.model.Response;
 @Data
 public class ResponseNotificationEvent {
     private String username;  // Имя пользователя
+    private Long vacancyId; // id вакансии (по нему notification-service собирает дайджесты)
     private String response; // name вакансии
     private String email; //куда присылаем
 }
@@ -0,0 +1,20 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class ResponsePageDto {
+    private List<ResponseItemDto> items; // новые сверху
+    private long total;
+
+    public ResponsePageDto(List<ResponseItemDto> items, long total) {
+        this.items = items;
+        this.total = total;
+    }
+
+    public ResponsePageDto() {}
+}
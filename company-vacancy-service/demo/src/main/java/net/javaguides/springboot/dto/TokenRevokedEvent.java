@@ -0,0 +1,9 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Data;
+
+@Data
+public class TokenRevokedEvent {
+    private String digest; // TokenDigest отозванного токена
+    private long expiresAt; // exp токена, мс; после этого запись больше не нужна
+}
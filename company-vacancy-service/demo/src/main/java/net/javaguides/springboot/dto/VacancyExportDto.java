@@ -0,0 +1,49 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Строка выгрузки вакансий: плоская, чтобы ложиться и в NDJSON, и в CSV
+@Getter
+@Setter
+public class VacancyExportDto {
+    private Long vacancy_id;
+    private String name;
+    private String title;
+    private String description;
+    private String contact;
+    private String experience;
+    private String format;
+    private String address;
+    private String schedule;
+    private String hours;
+    private Boolean is_educated;
+    private Boolean open; // isHidden = true - вакансия открыта
+    private Date date;
+    private Long company_id;
+    private String companyName;
+
+    public VacancyExportDto(Long vacancy_id, String name, String title, String description, String contact,
+                            String experience, String format, String address, String schedule, String hours,
+                            Boolean is_educated, Boolean open, Date date, Long company_id, String companyName) {
+        this.vacancy_id = vacancy_id;
+        this.name = name;
+        this.title = title;
+        this.description = description;
+        this.contact = contact;
+        this.experience = experience;
+        this.format = format;
+        this.address = address;
+        this.schedule = schedule;
+        this.hours = hours;
+        this.is_educated = is_educated;
+        this.open = open;
+        this.date = date;
+        this.company_id = company_id;
+        this.companyName = companyName;
+    }
+
+    public VacancyExportDto() {}
+}
@@ -0,0 +1,47 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Вакансия в списке: собирается JPQL-конструктором одним запросом вместе с компанией,
+// без загрузки сущностей Vacancy/Company. JSON совпадает с сущностью, кроме урезанного company.
+@Getter
+@Setter
+public class VacancyItemDto {
+    private Long vacancy_id;
+    private String name;
+    private String title;
+    private String description;
+    private String contact;
+    private String experience;
+    private String format;
+    private String address;
+    private String schedule;
+    private String hours;
+    private Boolean is_educated;
+    private Date date;
+    private CompanyShortDto company;
+
+    public VacancyItemDto(Long vacancy_id, String name, String title, String description, String contact,
+                          String experience, String format, String address, String schedule, String hours,
+                          Boolean is_educated, Date date, Long company_id, String companyName,
+                          String companyUserName) {
+        this.vacancy_id = vacancy_id;
+        this.name = name;
+        this.title = title;
+        this.description = description;
+        this.contact = contact;
+        this.experience = experience;
+        this.format = format;
+        this.address = address;
+        this.schedule = schedule;
+        this.hours = hours;
+        this.is_educated = is_educated;
+        this.date = date;
+        this.company = new CompanyShortDto(company_id, companyName, companyUserName);
+    }
+
+    public VacancyItemDto() {}
+}
@@ -0,0 +1,20 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class VacancyPageDto {
+    private List<VacancyItemDto> items;
+    private String nextCursor; // null - страниц больше нет
+
+    public VacancyPageDto(List<VacancyItemDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public VacancyPageDto() {}
+}
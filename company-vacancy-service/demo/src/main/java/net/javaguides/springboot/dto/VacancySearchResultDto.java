@@ -0,0 +1,20 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class VacancySearchResultDto {
+    private List<VacancyItemDto> items; // в порядке релевантности
+    private long total; // без отброшенных хитов этой страницы; устаревшие хиты других страниц индекс убирает с задержкой
+
+    public VacancySearchResultDto(List<VacancyItemDto> items, long total) {
+        this.items = items;
+        this.total = total;
+    }
+
+    public VacancySearchResultDto() {}
+}
@@ -0,0 +1,37 @@
+package net.javaguides.springboot.dto;
+
+import lombok.Getter;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.util.ResourceVersion;
+
+import java.util.Date;
+
+// Версия карточки вакансии: дата изменения вакансии и её компании (компания входит в JSON вакансии).
+// Для 304 собирается JPQL-конструктором по первичному ключу, для ответа 200 - из самой вакансии.
+@Getter
+public class VacancyVersionDto {
+    private final Long vacancy_id;
+    private final Date date;
+    private final Date companyUpdatedAt;
+
+    public VacancyVersionDto(Long vacancy_id, Date date, Date companyUpdatedAt) {
+        this.vacancy_id = vacancy_id;
+        this.date = date;
+        this.companyUpdatedAt = companyUpdatedAt;
+    }
+
+    public VacancyVersionDto(Vacancy vacancy) {
+        this(vacancy.getVacancy_id(), vacancy.getDate(), vacancy.getCompany().getUpdated_at());
+    }
+
+    public ResourceVersion toResourceVersion() {
+        long vacancyMillis = millis(date);
+        long companyMillis = millis(companyUpdatedAt);
+        return new ResourceVersion("v" + vacancy_id + "-" + vacancyMillis + "-" + companyMillis,
+                Math.max(vacancyMillis, companyMillis));
+    }
+
+    private static long millis(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+}
@@ -5,6 +5,9 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 import java.util.Date;
 import java.util.List;
 
@@ -12,10 +15,13 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "company")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Company {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "company_seq")
+    @SequenceGenerator(name = "company_seq", sequenceName = "company_seq", allocationSize = 50)
     private Long company_id;
 
     @NotNull
@@ -50,6 +56,12 @@ public class Company {
 
     private String userName;
 
+    // ставит Hibernate при вставке и каждом UPDATE; входит в ETag карточек компании и её вакансий
+    @UpdateTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date updated_at;
+
     @OneToMany(mappedBy = "company",
             cascade = { CascadeType.PERSIST, CascadeType.MERGE }, // Убрали REMOVE
             orphanRemoval = true)
@@ -7,6 +7,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
@@ -16,10 +18,14 @@ import java.util.Date;
 @Entity
 @Getter
 @Setter
+@Table(name = "response")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Response {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "response_seq")
+    @SequenceGenerator(name = "response_seq", sequenceName = "response_seq", allocationSize = 50)
     private Long response_id;
 
     // текущая дата
@@ -7,6 +7,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import net.javaguides.springboot.dto.VacancyDto;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -17,10 +19,14 @@ import java.util.Date;
 @Setter
 @Entity
 @Table(name = "vacancy")
+// second-level cache: регионы и их TTL настраиваются в EntityCacheConfig
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Vacancy {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются блоками, вставки идут JDBC-батчами
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vacancy_seq")
+    @SequenceGenerator(name = "vacancy_seq", sequenceName = "vacancy_seq", allocationSize = 50)
     private Long vacancy_id;
 
     @NotNull
@@ -59,10 +65,10 @@ public class Vacancy {
     @JsonIgnore
     private Boolean isHidden = true; // open
 
-    // текущая дата
+    // дата публикации или последнего изменения: по ней сортируется лента и считается ETag
     @UpdateTimestamp
     @Temporal(TemporalType.TIMESTAMP)
-    @Column(nullable = false, updatable = false)
+    @Column(nullable = false)
     private Date date;
 
     public Vacancy() {}
@@ -1,8 +1,14 @@
 package net.javaguides.springboot.repository;
 
+import jakarta.persistence.QueryHint;
+import net.javaguides.springboot.dto.CompanyCardVersionDto;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import net.javaguides.springboot.model.Company;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +17,15 @@ import java.util.Optional;
 @Repository
 public interface CompanyRepository extends JpaRepository<Company, Long>{
     List<Company> findByUserName(String userName);
+
+    // публичный список компаний: в кэше запросов только id, сами компании берутся из second-level cache
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Company> findAll();
+
+    // версия карточки компании для ETag: вакансии считаются по частичному индексу idx_vacancy_company_feed
+    @Query("SELECT new net.javaguides.springboot.dto.CompanyCardVersionDto(c.company_id, c.updated_at, max(v.date), count(v)) " +
+            "FROM Company c LEFT JOIN c.vacancies v ON v.isHidden = true " +
+            "WHERE c.company_id = :id GROUP BY c.company_id, c.updated_at")
+    Optional<CompanyCardVersionDto> findCardVersion(@Param("id") Long id);
 }
@@ -0,0 +1,23 @@
+package net.javaguides.springboot.repository;
+
+import net.javaguides.springboot.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Право отправлять outbox до конца транзакции; false - сейчас отправляет другая реплика.
+    // Параллельные релеи могли бы отправить два события одного агрегата в обратном порядке.
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('outbox_event'))", nativeQuery = true)
+    boolean tryLockRelay();
+
+    // Самые старые события в порядке записи. id для этого не годится: pooled-последовательность выдаёт
+    // блоки по 50, и событие, записанное позже, может получить меньший id.
+    @Query(value = "SELECT * FROM outbox_event ORDER BY created_at, id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findOldest(@Param("limit") int limit);
+}
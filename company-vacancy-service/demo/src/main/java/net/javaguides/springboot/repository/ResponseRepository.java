@@ -1,16 +1,38 @@
 package net.javaguides.springboot.repository;
 
-import jakarta.validation.constraints.NotNull;
+import net.javaguides.springboot.dto.ResponseItemDto;
 import net.javaguides.springboot.model.Response;
-import net.javaguides.springboot.model.Vacancy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
 public interface ResponseRepository extends JpaRepository<Response, Long> {
-    List<Response> findByUserName(@NotNull String userName);
 
-    List<Response> findByVacancy(Vacancy vacancy);
+    // один UPDATE на все непросмотренные; если таких нет - ни одна строка не пишется
+    @Modifying
+    @Transactional
+    @Query("UPDATE Response r SET r.isViewed = true WHERE r.userName = :userName AND r.isViewed = false")
+    int markViewedByUserName(@Param("userName") String userName);
+
+    @Query(value = "SELECT new net.javaguides.springboot.dto.ResponseItemDto(" +
+            "r.response_id, r.date, v.vacancy_id, v.name, v.title, c.name) " +
+            "FROM Response r LEFT JOIN r.vacancy v LEFT JOIN v.company c " +
+            "WHERE r.userName = :userName ORDER BY r.date DESC, r.response_id DESC",
+            countQuery = "SELECT count(r) FROM Response r WHERE r.userName = :userName")
+    Page<ResponseItemDto> findItemsByUserName(@Param("userName") String userName, Pageable pageable);
+
+    // отклики на вакансию для её владельца
+    @Query("SELECT new net.javaguides.springboot.dto.ResponseItemDto(" +
+            "r.response_id, r.date, v.vacancy_id, v.name, v.title, c.name) " +
+            "FROM Response r JOIN r.vacancy v JOIN v.company c " +
+            "WHERE v.vacancy_id = :vacancyId ORDER BY r.date DESC, r.response_id DESC")
+    List<ResponseItemDto> findItemsByVacancyId(@Param("vacancyId") Long vacancyId);
 }
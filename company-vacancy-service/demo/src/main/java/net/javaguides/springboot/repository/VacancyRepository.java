@@ -1,20 +1,78 @@
 package net.javaguides.springboot.repository;
 
+import jakarta.persistence.QueryHint;
+import net.javaguides.springboot.dto.VacancyItemDto;
+import net.javaguides.springboot.dto.VacancyVersionDto;
 import net.javaguides.springboot.model.Vacancy;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VacancyRepository extends JpaRepository<Vacancy, Long> {
-    List<Vacancy> findByIsHiddenTrue();
+    // элемент списка вместе с компанией - один запрос, сущности не загружаются
+    String SELECT_ITEM = "SELECT new net.javaguides.springboot.dto.VacancyItemDto(" +
+            "v.vacancy_id, v.name, v.title, v.description, v.contact, v.experience, v.format, v.address, " +
+            "v.schedule, v.hours, v.is_educated, v.date, c.company_id, c.name, c.userName) " +
+            "FROM Vacancy v JOIN v.company c ";
 
-    @Query("SELECT v FROM Vacancy v WHERE v.vacancy_id = :id AND v.isHidden = true")
+    // лента открытых вакансий (keyset по date, vacancy_id); публичные списки идут через кэш запросов
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_ITEM + "WHERE v.isHidden = true ORDER BY v.date DESC, v.vacancy_id DESC")
+    List<VacancyItemDto> findFeed(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_ITEM + "WHERE v.isHidden = true " +
+            "AND (v.date < :date OR (v.date = :date AND v.vacancy_id < :id)) " +
+            "ORDER BY v.date DESC, v.vacancy_id DESC")
+    List<VacancyItemDto> findFeedAfter(@Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    // открытые вакансии компании в том же порядке, что и лента: превью в карточке и постраничный список
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_ITEM + "WHERE v.company.company_id = :companyId AND v.isHidden = true " +
+            "ORDER BY v.date DESC, v.vacancy_id DESC")
+    List<VacancyItemDto> findCompanyFeed(@Param("companyId") Long companyId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(SELECT_ITEM + "WHERE v.company.company_id = :companyId AND v.isHidden = true " +
+            "AND (v.date < :date OR (v.date = :date AND v.vacancy_id < :id)) " +
+            "ORDER BY v.date DESC, v.vacancy_id DESC")
+    List<VacancyItemDto> findCompanyFeedAfter(@Param("companyId") Long companyId, @Param("date") Date date,
+                                              @Param("id") Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT count(v) FROM Vacancy v WHERE v.company.company_id = :companyId AND v.isHidden = true")
+    long countOpenByCompanyId(@Param("companyId") Long companyId);
+
+    // версия карточки вакансии для ETag: два поиска по первичному ключу, без кэша - проверка всегда по базе
+    @Query("SELECT new net.javaguides.springboot.dto.VacancyVersionDto(v.vacancy_id, v.date, c.updated_at) " +
+            "FROM Vacancy v JOIN v.company c WHERE v.vacancy_id = :id")
+    Optional<VacancyVersionDto> findVersion(@Param("id") Long id);
+
+    @Query(SELECT_ITEM + "WHERE c.userName = :username ORDER BY v.vacancy_id")
+    List<VacancyItemDto> findItemsByCompanyUserName(@Param("username") String username);
+
+    @Query(SELECT_ITEM + "ORDER BY v.vacancy_id")
+    List<VacancyItemDto> findAllItems();
+
+    // результаты поиска: порядок задаёт поисковый индекс
+    @Query(SELECT_ITEM + "WHERE v.vacancy_id IN :ids AND v.isHidden = true")
+    List<VacancyItemDto> findOpenItemsByIds(@Param("ids") Collection<Long> ids);
+
+    // компания нужна отклику (адресат уведомления) и попадает в его JSON - грузим сразу, а не прокси
+    @Query("SELECT v FROM Vacancy v JOIN FETCH v.company WHERE v.vacancy_id = :id AND v.isHidden = true")
     Optional<Vacancy> findByIdAndHidden(@Param("id") Long id);
 
-    List<Vacancy> findByCompany_userName(String username);
+    // открытые вакансии пачками по id - для перестроения поискового индекса
+    @Query("SELECT v FROM Vacancy v WHERE v.isHidden = true AND v.vacancy_id > :id ORDER BY v.vacancy_id")
+    List<Vacancy> findOpenAfterId(@Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,298 @@
+package net.javaguides.springboot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.util.AfterCommit;
+import net.javaguides.springboot.util.ResourceVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Общий для всех реплик кэш ответов каталога в Redis (ленты, карточки вакансий и компаний).
+// Ключи содержат версию каталога: любая запись в каталог увеличивает её, и старые ответы больше не читаются.
+// Устаревший (старше fresh-ttl) ответ отдаётся сразу, а обновляется в фоне; промах по одному ключу
+// грузит из базы один поток на весь кластер - остальные ждут его результат (блокировка в Redis).
+// Если Redis недоступен, запрос идёт прямо в базу.
+@Slf4j
+@Service
+public class CatalogueCacheService {
+
+    private static final String PREFIX = "catalogue:";
+    private static final String VERSION_KEY = PREFIX + "version";
+    private static final String MODIFIED_KEY = PREFIX + "modified"; // время последнего изменения, мс
+    private static final String LOCK_PREFIX = PREFIX + "lock:";
+    private static final String METRIC_NAME = "catalogue.cache.requests";
+
+    // снимаем только свою блокировку: чужую могли взять, пока наша истекла
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    // загрузки, идущие на этой реплике: второй запрос того же ключа ждёт первый
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter errors;
+
+    @Value("${catalogue-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalogue-cache.fresh-ttl:30s}")
+    private Duration freshTtl;
+
+    @Value("${catalogue-cache.stale-ttl:5m}")
+    private Duration staleTtl;
+
+    @Value("${catalogue-cache.lock-ttl:5s}")
+    private Duration lockTtl;
+
+    @Value("${catalogue-cache.lock-poll:50ms}")
+    private Duration lockPoll;
+
+    @Autowired
+    public CatalogueCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                 @Qualifier("applicationTaskExecutor") Executor executor,
+                                 MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.hits = counter(meterRegistry, "hit");
+        this.staleHits = counter(meterRegistry, "stale");
+        this.misses = counter(meterRegistry, "miss");
+        this.errors = counter(meterRegistry, "error");
+    }
+
+    // ответ по ключу из кэша или из loader; исключения loader (404 и т.п.) не кэшируются
+    public <T> T get(String key, Class<T> type, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Supplier<String> serialized = () -> {
+            try {
+                return write(loader.get());
+            } catch (RuntimeException e) {
+                throw new LoadFailedException(e);
+            }
+        };
+        String payload;
+        try {
+            payload = getPayload(PREFIX + version() + ":" + key, serialized);
+        } catch (LoadFailedException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("catalogue cache unavailable: {}", e.getMessage());
+            return loader.get();
+        }
+        return read(payload, type);
+    }
+
+    // после коммита: следующий запрос любой реплики читает уже новую версию
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            try {
+                redisTemplate.opsForValue().increment(VERSION_KEY);
+                redisTemplate.opsForValue().set(MODIFIED_KEY, Long.toString(System.currentTimeMillis()));
+            } catch (DataAccessException e) {
+                // старые ответы доживут до stale-ttl
+                log.error("catalogue cache version bump failed", e);
+            }
+        });
+    }
+
+    // версия каталога для ETag лент: один MGET, ответ не загружается; null - кэш выключен или Redis недоступен.
+    // Время изменения входит в тег, чтобы после очистки Redis счётчик с нуля не повторил уже выданные теги.
+    public ResourceVersion currentVersion() {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(VERSION_KEY, MODIFIED_KEY));
+            String version = values.get(0) == null ? "0" : values.get(0);
+            String modified = values.get(1);
+            if (modified == null) {
+                String now = Long.toString(System.currentTimeMillis());
+                modified = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(MODIFIED_KEY, now))
+                        ? now : redisTemplate.opsForValue().get(MODIFIED_KEY);
+            }
+            return new ResourceVersion("catalogue-" + version + "-" + modified, Long.parseLong(modified));
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("catalogue cache unavailable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String version() {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY);
+        return version == null ? "0" : version;
+    }
+
+    private String getPayload(String key, Supplier<String> loader) {
+        String entry = redisTemplate.opsForValue().get(key);
+        if (entry == null) {
+            misses.increment();
+            return coalesce(key, loader);
+        }
+        int separator = entry.indexOf('\n');
+        long freshUntil = Long.parseLong(entry.substring(0, separator));
+        if (freshUntil < System.currentTimeMillis()) {
+            staleHits.increment();
+            refreshInBackground(key, loader);
+        } else {
+            hits.increment();
+        }
+        return entry.substring(separator + 1);
+    }
+
+    private String coalesce(String key, Supplier<String> loader) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            String payload = loadOnce(key, loader);
+            mine.complete(payload);
+            return payload;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // между репликами: грузит тот, кто взял блокировку, остальные ждут записи не дольше lock-ttl
+    private String loadOnce(String key, Supplier<String> loader) {
+        String token = tryLock(key);
+        if (token != null) {
+            try {
+                return load(key, loader);
+            } finally {
+                unlock(key, token);
+            }
+        }
+        long deadline = System.nanoTime() + lockTtl.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(lockPoll.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            String entry = redisTemplate.opsForValue().get(key);
+            if (entry != null) {
+                return entry.substring(entry.indexOf('\n') + 1);
+            }
+        }
+        return load(key, loader);
+    }
+
+    private void refreshInBackground(String key, Supplier<String> loader) {
+        String token = tryLock(key);
+        if (token == null) {
+            return; // уже обновляет эта или другая реплика
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    load(key, loader);
+                } catch (RuntimeException e) {
+                    log.warn("catalogue cache refresh failed for {}", key, e);
+                } finally {
+                    unlock(key, token);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            unlock(key, token);
+        }
+    }
+
+    // запись: "<freshUntil, мс>\n<json>", живёт fresh-ttl + stale-ttl
+    private String load(String key, Supplier<String> loader) {
+        String payload = loader.get();
+        long freshUntil = System.currentTimeMillis() + freshTtl.toMillis();
+        try {
+            redisTemplate.opsForValue().set(key, freshUntil + "\n" + payload, freshTtl.plus(staleTtl));
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("catalogue cache write failed for {}: {}", key, e.getMessage());
+        }
+        return payload;
+    }
+
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + key, token, lockTtl);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    private void unlock(String key, String token) {
+        try {
+            redisTemplate.execute(UNLOCK, List.of(LOCK_PREFIX + key), token);
+        } catch (DataAccessException e) {
+            log.warn("catalogue cache unlock failed for {}", key, e); // истечёт через lock-ttl
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T read(String payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // исключение из loader: его ошибки доступа к базе не путаем с ошибками Redis
+    private static class LoadFailedException extends RuntimeException {
+        LoadFailedException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
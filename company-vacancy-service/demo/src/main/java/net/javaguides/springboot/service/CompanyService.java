@@ -2,15 +2,22 @@ package net.javaguides.springboot.service;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.CompanyCardVersionDto;
 import net.javaguides.springboot.dto.CompanyOneDto;
 import net.javaguides.springboot.exception.ResourceNotFoundException;
 import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Response;
+import net.javaguides.springboot.model.Vacancy;
 import net.javaguides.springboot.repository.CompanyRepository;
-import net.javaguides.springboot.util.JwtUtil;
+import net.javaguides.springboot.repository.VacancyRepository;
+import net.javaguides.springboot.util.ResourceVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,12 +29,20 @@ import java.util.concurrent.CompletableFuture;
 public class CompanyService {
 
     private final CompanyRepository companyRepository;
-    private final JwtUtil jwtUtil;
+    private final VacancyRepository vacancyRepository;
+    private final EntityCacheInvalidationService entityCacheInvalidationService;
+    private final CatalogueCacheService catalogueCacheService;
 
-    public CompanyService(CompanyRepository companyRepository,
-                          JwtUtil jwtUtil) {
+    @Value("${company.vacancy-preview-size:5}")
+    private int vacancyPreviewSize;
+
+    public CompanyService(CompanyRepository companyRepository, VacancyRepository vacancyRepository,
+                          EntityCacheInvalidationService entityCacheInvalidationService,
+                          CatalogueCacheService catalogueCacheService) {
         this.companyRepository = companyRepository;
-        this.jwtUtil = jwtUtil;
+        this.vacancyRepository = vacancyRepository;
+        this.entityCacheInvalidationService = entityCacheInvalidationService;
+        this.catalogueCacheService = catalogueCacheService;
     }
 
     @Async
@@ -37,43 +52,67 @@ public class CompanyService {
     }
 
     @Async
-    public CompletableFuture<List<Company>> getMyCompanies(String token) {
-        String username = jwtUtil.extractUsername(token);
+    public CompletableFuture<List<Company>> getMyCompanies(String username) {
         return CompletableFuture.completedFuture(companyRepository.findByUserName(username));
     }
 
     @Async
     public CompletableFuture<Company> createCompany(Company company) {
         log.info("service create company");
-        return CompletableFuture.completedFuture(companyRepository.save(company));
+        Company saved = companyRepository.save(company);
+        entityCacheInvalidationService.evictOnOtherReplicas(Company.class, saved.getCompany_id());
+        return CompletableFuture.completedFuture(saved);
     }
 
     @Async
     public CompletableFuture<CompanyOneDto> getOneCompany(Long id) {
+        CompanyOneDto companyOneDto = catalogueCacheService.get("company:" + id, CompanyOneDto.class,
+                () -> loadCompanyCard(id));
+        log.info("service get one company");
+        return CompletableFuture.completedFuture(companyOneDto);
+    }
+
+    // версия карточки для условного GET: один агрегирующий запрос, карточка не собирается
+    @Async
+    public CompletableFuture<ResourceVersion> getCompanyCardVersion(Long id) {
+        CompanyCardVersionDto version = companyRepository.findCardVersion(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
+        return CompletableFuture.completedFuture(version.toResourceVersion());
+    }
+
+    private CompanyOneDto loadCompanyCard(Long id) {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
         CompanyOneDto companyOneDto = new CompanyOneDto(company);
-        log.info("service get one company");
-        return CompletableFuture.completedFuture(companyOneDto);
+        // в карточке только начало списка и общее число, коллекция company.vacancies не загружается
+        companyOneDto.setVacancies(vacancyRepository.findCompanyFeed(id, PageRequest.of(0, vacancyPreviewSize)));
+        companyOneDto.setVacanciesCount(vacancyRepository.countOpenByCompanyId(id));
+        return companyOneDto;
     }
 
+    // Изменения пишутся в загруженную сущность и сохраняются при коммите одним UPDATE company.
+    // save(companyDetails) делал merge с каскадом на vacancies и вытаскивал все вакансии компании.
     @Async
+    @Transactional
     public CompletableFuture<Company> updateCompany(Long id, @Valid Company companyDetails) {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
-        companyDetails.setCompany_id(company.getCompany_id());
-        companyDetails.setVacancies(company.getVacancies());
-
-        return CompletableFuture.completedFuture(companyRepository.save(companyDetails));
+        copyDetails(companyDetails, company);
+        company.setIs_accepted(companyDetails.getIs_accepted());
+        entityCacheInvalidationService.evictOnOtherReplicas(Company.class, id);
+        catalogueCacheService.invalidate();
+        return CompletableFuture.completedFuture(company);
     }
 
     @Async
+    @Transactional
     public CompletableFuture<Company> acceptCompany(Long id) {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
         company.setIs_accepted(true);
-        company.setVacancies(company.getVacancies());
-        return CompletableFuture.completedFuture(companyRepository.save(company));
+        entityCacheInvalidationService.evictOnOtherReplicas(Company.class, id);
+        catalogueCacheService.invalidate();
+        return CompletableFuture.completedFuture(company);
     }
 
     @Async
@@ -81,28 +120,29 @@ public class CompanyService {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
         companyRepository.delete(company);
+        evictDeleted(id);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Компания успешно удалена!");
         return CompletableFuture.completedFuture(ResponseEntity.ok(response).getBody());
     }
 
     @Async
-    public CompletableFuture<Map<String, Object>> deleteMyCompany(Long id, String token) {
-        String username = jwtUtil.extractUsername(token);
+    public CompletableFuture<Map<String, Object>> deleteMyCompany(Long id, String username) {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
         if (!company.getUserName().equals(username)) {
             throw new RuntimeException("Нет доступа!");
         }
         companyRepository.delete(company);
+        evictDeleted(id);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Компания успешно удалена!");
         return CompletableFuture.completedFuture(ResponseEntity.ok(response).getBody());
     }
 
     @Async
-    public CompletableFuture<Company> updateMyCompany(Long id, Company companyDetails, String token) {
-        String username = jwtUtil.extractUsername(token);
+    @Transactional
+    public CompletableFuture<Company> updateMyCompany(Long id, Company companyDetails, String username) {
         Company company = companyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!"));
         if (!company.getUserName().equals(username)) {
@@ -111,11 +151,29 @@ public class CompanyService {
         if (company.getIs_accepted()) {
             throw new ResourceNotFoundException("Компания верефицирована! Невозможно изменить информацию!");
         }
-        companyDetails.setCompany_id(company.getCompany_id());
-        companyDetails.setVacancies(company.getVacancies());
-//        companyDetails.setIs_accepted(false);
-        companyDetails.setUserName(company.getUserName());
+        copyDetails(companyDetails, company);
+        company.setIs_accepted(companyDetails.getIs_accepted());
+        entityCacheInvalidationService.evictOnOtherReplicas(Company.class, id);
+        catalogueCacheService.invalidate();
+        return CompletableFuture.completedFuture(company);
+    }
+
+    // вакансии компании удаляются вместе с ней (orphanRemoval), у их откликов база обнуляет vacancy_id
+    private void evictDeleted(Long id) {
+        entityCacheInvalidationService.evictOnOtherReplicas(Company.class, id);
+        entityCacheInvalidationService.evictOnOtherReplicas(Vacancy.class, null);
+        entityCacheInvalidationService.evictEverywhere(Response.class);
+        catalogueCacheService.invalidate();
+    }
 
-        return CompletableFuture.completedFuture(companyRepository.save(companyDetails));
+    // владелец (userName) и вакансии не меняются
+    private static void copyDetails(Company from, Company to) {
+        to.setName(from.getName());
+        to.setInn(from.getInn());
+        to.setKpp(from.getKpp());
+        to.setOgrn(from.getOgrn());
+        to.setAddress(from.getAddress());
+        to.setDirector(from.getDirector());
+        to.setDate_reg(from.getDate_reg());
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package net.javaguides.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.EntityCacheEvictEvent;
+import net.javaguides.springboot.util.AfterCommit;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+// Second-level cache у каждой реплики свой. Изменения через сессию Hibernate сам отражает в локальном кэше,
+// остальным репликам о них сообщается через Kafka (топик entity-cache-invalidation, у каждой реплики своя группа).
+// Получив событие, реплика сбрасывает запись сущности и кэш запросов: отметки времени таблиц у неё свои
+// и о чужой записи ничего не знают.
+@Slf4j
+@Service
+public class EntityCacheInvalidationService {
+
+    public static final String TOPIC_ENTITY_CACHE = "entity-cache-invalidation";
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Cache cache;
+    private final KafkaProducerService kafkaProducerService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public EntityCacheInvalidationService(EntityManagerFactory entityManagerFactory,
+                                          KafkaProducerService kafkaProducerService, ObjectMapper objectMapper) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        this.kafkaProducerService = kafkaProducerService;
+        this.objectMapper = objectMapper;
+    }
+
+    // сущность изменена через Hibernate: локальный кэш уже актуален, сбрасываем на остальных репликах
+    public void evictOnOtherReplicas(Class<?> entity, Long id) {
+        EntityCacheEvictEvent event = new EntityCacheEvictEvent(instanceId, entity.getName(), id);
+        AfterCommit.run(() -> kafkaProducerService.sendEntityCacheEvictEvent(event));
+    }
+
+    // строки изменены самой базой (ON DELETE SET NULL), Hibernate о них не знает - сбрасываем регион везде
+    public void evictEverywhere(Class<?> entity) {
+        EntityCacheEvictEvent event = new EntityCacheEvictEvent(instanceId, entity.getName(), null);
+        AfterCommit.run(() -> {
+            evict(event);
+            kafkaProducerService.sendEntityCacheEvictEvent(event);
+        });
+    }
+
+    @KafkaListener(topics = TOPIC_ENTITY_CACHE, groupId = "entity-cache-${random.uuid}")
+    public void onEntityChanged(String message) {
+        try {
+            EntityCacheEvictEvent event = objectMapper.readValue(message, EntityCacheEvictEvent.class);
+            if (instanceId.equals(event.getOrigin())) {
+                return;
+            }
+            evict(event);
+            cache.evictQueryRegions();
+        } catch (Exception e) {
+            log.error("An error occurred", e);
+        }
+    }
+
+    private void evict(EntityCacheEvictEvent event) {
+        if (event.getId() == null) {
+            cache.evictEntityData(event.getEntity());
+        } else {
+            cache.evictEntityData(event.getEntity(), event.getId());
+        }
+    }
+}
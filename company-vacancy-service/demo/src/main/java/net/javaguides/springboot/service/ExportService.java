@@ -0,0 +1,157 @@
+package net.javaguides.springboot.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.CompanyExportDto;
+import net.javaguides.springboot.dto.ResponseExportDto;
+import net.javaguides.springboot.dto.VacancyExportDto;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Выгрузка таблиц для админа в NDJSON или CSV. Строки читаются курсором PostgreSQL по export.fetch-size
+// и сразу пишутся в поток ответа: в памяти одна порция курсора и буфер Jackson, сколько бы ни было строк.
+// Читаются проекции, а не сущности - контекст персистентности и second-level cache не растут.
+@Slf4j
+@Service
+public class ExportService {
+
+    private static final String VACANCIES = "SELECT new net.javaguides.springboot.dto.VacancyExportDto(" +
+            "v.vacancy_id, v.name, v.title, v.description, v.contact, v.experience, v.format, v.address, " +
+            "v.schedule, v.hours, v.is_educated, v.isHidden, v.date, c.company_id, c.name) " +
+            "FROM Vacancy v JOIN v.company c ORDER BY v.vacancy_id";
+
+    private static final String COMPANIES = "SELECT new net.javaguides.springboot.dto.CompanyExportDto(" +
+            "c.company_id, c.name, c.inn, c.kpp, c.ogrn, c.address, c.director, c.date_reg, c.is_accepted, " +
+            "c.userName, c.updated_at) FROM Company c ORDER BY c.company_id";
+
+    private static final String RESPONSES = "SELECT new net.javaguides.springboot.dto.ResponseExportDto(" +
+            "r.response_id, r.date, r.userName, r.isViewed, v.vacancy_id, v.name, c.company_id, c.name) " +
+            "FROM Response r LEFT JOIN r.vacancy v LEFT JOIN v.company c ORDER BY r.response_id";
+
+    private final ObjectMapper objectMapper;
+    // колонки CSV в порядке полей DTO, даты в том же ISO-виде, что и в JSON
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    // формат выбирается параметром format, по умолчанию NDJSON
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = MediaType.parseMediaType(mediaType);
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String format) {
+            if (format == null || format.isBlank()) {
+                return NDJSON;
+            }
+            for (Format value : values()) {
+                if (value.extension.equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестный формат выгрузки: " + format);
+        }
+    }
+
+    @Autowired
+    public ExportService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // курсор PostgreSQL живёт только внутри транзакции (autocommit выключен)
+    @Transactional(readOnly = true)
+    public void exportVacancies(OutputStream out, Format format) {
+        write(stream(VACANCIES, VacancyExportDto.class), VacancyExportDto.class, format, out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportCompanies(OutputStream out, Format format) {
+        write(stream(COMPANIES, CompanyExportDto.class), CompanyExportDto.class, format, out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportResponses(OutputStream out, Format format) {
+        write(stream(RESPONSES, ResponseExportDto.class), ResponseExportDto.class, format, out);
+    }
+
+    private <T> Stream<T> stream(String query, Class<T> type) {
+        return entityManager.createQuery(query, type)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+
+    // Jackson сбрасывает данные в ответ по заполнению своего буфера, а не после каждой строки
+    private <T> void write(Stream<T> rows, Class<T> type, Format format, OutputStream out) {
+        long count = 0;
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            if (format == Format.CSV) {
+                ObjectWriter writer = csvMapper.writerFor(type)
+                        .with(csvMapper.schemaFor(type).withHeader())
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                try (SequenceWriter sequence = writer.writeValues(out)) {
+                    while (iterator.hasNext()) {
+                        sequence.write(iterator.next());
+                        count++;
+                    }
+                }
+            } else {
+                ObjectWriter writer = objectMapper.writerFor(type)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    generator.setRootValueSeparator(null);
+                    while (iterator.hasNext()) {
+                        writer.writeValue(generator, iterator.next());
+                        generator.writeRaw('\n');
+                        count++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // обычно клиент оборвал загрузку: курсор закрывается, транзакция откатывается
+            throw new UncheckedIOException(e);
+        }
+        log.info("service export {}: {} rows", type.getSimpleName(), count);
+    }
+}
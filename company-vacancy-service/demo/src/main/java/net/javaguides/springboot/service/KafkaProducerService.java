@@ -2,6 +2,7 @@ package net.javaguides.springboot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboot.dto.EntityCacheEvictEvent;
 import net.javaguides.springboot.dto.ResponseNotificationEvent;
 import net.javaguides.springboot.model.Response;
 import org.slf4j.Logger;
@@ -17,26 +18,45 @@ public class KafkaProducerService {
     private static final String TOPIC_RESPONSE = "response-notifications";
     private final ObjectMapper objectMapper;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxService outboxService;
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
 
     @Autowired
-    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                                OutboxService outboxService) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.outboxService = outboxService;
     }
 
-    public void sendResponseNotification(String username, String name, String email) {
+    // через outbox: уведомление уходит, только если отклик сохранён
+    public void sendResponseNotification(Long vacancyId, String username, String name, String email) {
 
         ResponseNotificationEvent event = ResponseNotificationEvent.builder()
                 .username(username)
+                .vacancyId(vacancyId)
                 .response(name)
                 .email(email)
                 .build();
 
         try {
             String message = objectMapper.writeValueAsString(event); // Сериализация в JSON
-            kafkaTemplate.send(TOPIC_RESPONSE, message); // Отправка в Kafka
+            outboxService.add(TOPIC_RESPONSE, vacancyId.toString(), message); // в Kafka после коммита (OutboxRelay)
+        } catch (JsonProcessingException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    // остальные реплики переиндексируют вакансию по id
+    public void sendVacancyIndexEvent(Long vacancyId) {
+        kafkaTemplate.send(VacancySearchService.TOPIC_VACANCY_INDEX, vacancyId.toString(), vacancyId.toString());
+    }
+
+    // остальные реплики сбрасывают запись сущности в second-level cache
+    public void sendEntityCacheEvictEvent(EntityCacheEvictEvent event) {
+        try {
+            kafkaTemplate.send(EntityCacheInvalidationService.TOPIC_ENTITY_CACHE, objectMapper.writeValueAsString(event));
         } catch (JsonProcessingException e) {
             logger.error("An error occurred", e);
         }
@@ -0,0 +1,87 @@
+package net.javaguides.springboot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.model.OutboxEvent;
+import net.javaguides.springboot.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Transactional outbox: событие пишется в outbox_event в транзакции вызывающего кода
+// и уходит в Kafka только если она закоммичена. Запрос не ждёт брокер - отправляет OutboxRelay.
+// Доставка "хотя бы один раз": после сбоя между отправкой и удалением строки событие уйдёт повторно.
+// Порядок: события отправляет одна реплика за раз в порядке created_at, ключ - id агрегата, поэтому
+// события одной сущности приходят в порядке записи (кроме повторов после сбоя).
+// Между разными агрегатами порядок не гарантируется.
+@Slf4j
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository, KafkaTemplate<String, String> kafkaTemplate) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    // присоединяется к текущей транзакции; без неё событие сохраняется сразу. key - id агрегата
+    @Transactional
+    public void add(String topic, String key, String payload) {
+        outboxEventRepository.save(new OutboxEvent(topic, key, payload));
+    }
+
+    // Одна пачка: берёт до batch-size самых старых строк, отправляет их разом и ждёт подтверждений брокера.
+    // Отправленные удаляются; на первой неудаче пачка обрывается, остаток уйдёт в следующий раз.
+    // Возвращает размер пачки, если ушла вся: тогда релей сразу берёт следующую.
+    // Пока одна реплика отправляет пачку, другие пропускают запуск.
+    @Transactional
+    public int relayBatch() {
+        if (!outboxEventRepository.tryLockRelay()) {
+            return 0;
+        }
+        List<OutboxEvent> batch = outboxEventRepository.findOldest(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(kafkaTemplate.send(event.getTopic(), event.getEventKey(), event.getPayload()));
+        }
+        kafkaTemplate.flush(); // не ждём linger.ms: пачка уже собрана
+
+        List<Long> sent = new ArrayList<>(batch.size());
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(batch.get(i).getId());
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("outbox event {} not sent, will retry: {}", batch.get(i).getId(), e.toString());
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        outboxEventRepository.deleteAllByIdInBatch(sent);
+        return sent.size() == batch.size() ? batch.size() : 0;
+    }
+}
@@ -1,6 +1,8 @@
 package net.javaguides.springboot.service;
 
 import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.ResponseItemDto;
+import net.javaguides.springboot.dto.ResponsePageDto;
 import net.javaguides.springboot.exception.ResourceNotFoundException;
 import net.javaguides.springboot.model.Company;
 import net.javaguides.springboot.model.Response;
@@ -8,9 +10,13 @@ import net.javaguides.springboot.model.Vacancy;
 import net.javaguides.springboot.repository.ResponseRepository;
 import net.javaguides.springboot.repository.VacancyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -22,15 +28,26 @@ public class ResponseService {
     private final ResponseRepository responseRepository;
     private final VacancyRepository vacancyRepository;
     private final KafkaProducerService kafkaProducerService;
+    private final EntityCacheInvalidationService entityCacheInvalidationService;
+
+    @Value("${vacancy.feed.default-size:20}")
+    private int defaultSize;
+
+    @Value("${vacancy.feed.max-size:100}")
+    private int maxSize;
 
     @Autowired
-    public ResponseService(ResponseRepository responseRepository, VacancyRepository vacancyRepository , KafkaProducerService kafkaProducerService) {
+    public ResponseService(ResponseRepository responseRepository, VacancyRepository vacancyRepository , KafkaProducerService kafkaProducerService,
+                           EntityCacheInvalidationService entityCacheInvalidationService) {
         this.responseRepository = responseRepository;
         this.vacancyRepository = vacancyRepository;
         this.kafkaProducerService = kafkaProducerService;
+        this.entityCacheInvalidationService = entityCacheInvalidationService;
     }
 
+    // отклик и уведомление о нём - одной транзакцией (outbox): нет отклика - нет и письма
     @Async
+    @Transactional
     public CompletableFuture<Response> createResponse(Response response, String userName, Long vacancyId) {
 
         Vacancy vacancy = vacancyRepository.findByIdAndHidden(vacancyId)
@@ -38,34 +55,41 @@ public class ResponseService {
 
         response.setUserName(userName);
         response.setVacancy(vacancy);
+        Response saved = responseRepository.save(response);
         // логика отправки в notification-service:
-        log.info("Событие отправлено");
-        kafkaProducerService.sendResponseNotification(userName, vacancy.getName(), vacancy.getCompany().getUserName());
-        return CompletableFuture.completedFuture(responseRepository.save(response));
+        kafkaProducerService.sendResponseNotification(vacancy.getVacancy_id(), userName, vacancy.getName(),
+                vacancy.getCompany().getUserName());
+        log.info("Событие записано в outbox");
+        return CompletableFuture.completedFuture(saved);
     }
 
     @Async
-    public CompletableFuture<List<Response>> getAllResponsesByUser(String username) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Response> responses = responseRepository.findByUserName(username);
-            // Модифицируем каждое поле
-            responses.forEach(response -> {
-                response.setViewed(true); // Устанавливаем поле viewed в true
-            });
+    public CompletableFuture<ResponsePageDto> getAllResponsesByUser(String username, Integer page, Integer size) {
+        int pageSize = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+
+        // отмечаем просмотренными одним запросом, а не UPDATE на каждую строку
+        int marked = responseRepository.markViewedByUserName(username);
+        if (marked > 0) {
+            log.info("marked {} responses as viewed", marked);
+            // локальный регион Response Hibernate сбросил сам при bulk UPDATE
+            entityCacheInvalidationService.evictOnOtherReplicas(Response.class, null);
+        }
 
-            return responseRepository.saveAll(responses); // Сохраняем изменения
-        });
+        Page<ResponseItemDto> items = responseRepository.findItemsByUserName(username,
+                PageRequest.of(pageNumber, pageSize));
+        return CompletableFuture.completedFuture(new ResponsePageDto(items.getContent(), items.getTotalElements()));
     }
 
     @Async
-    public CompletableFuture<List<Response>>getAllResponsesByVacancy(Long vacancyId, String username) {
+    public CompletableFuture<List<ResponseItemDto>> getAllResponsesByVacancy(Long vacancyId, String username) {
         Vacancy vacancy = vacancyRepository.findById(vacancyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Вакансия не найдена!"));
         Company company = vacancy.getCompany();
         if (!company.getUserName().equals(username)) {
             throw new AccessDeniedException("Только создатель компании может просматривать отклики!");
         }
-        return CompletableFuture.completedFuture(responseRepository.findByVacancy(vacancy));
+        return CompletableFuture.completedFuture(responseRepository.findItemsByVacancyId(vacancyId));
     }
 
 }
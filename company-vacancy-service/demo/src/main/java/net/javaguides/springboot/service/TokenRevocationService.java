@@ -0,0 +1,80 @@
+package net.javaguides.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.TokenRevokedEvent;
+import net.javaguides.springboot.util.TokenDigest;
+import net.javaguides.springboot.util.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+// Локальная копия черного списка auth-service. Отзывы приходят из Kafka (топик token-revocations),
+// каждая реплика читает его целиком со своей группой; запись живёт до exp токена.
+// Проверка на запросе - поиск в памяти, без обращения к Redis или Kafka.
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    public static final String TOPIC_TOKEN_REVOCATIONS = "token-revocations";
+
+    private final Cache<String, Long> revoked; // отпечаток -> exp, мс
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TokenRevocationService(VerifiedTokenCache verifiedTokenCache, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.objectMapper = objectMapper;
+        // без ограничения размера: вытеснение отозванного токена вернуло бы ему силу
+        this.revoked = Caffeine.newBuilder()
+                .expireAfter(new UntilTokenExpires())
+                .build();
+        Gauge.builder("jwt.revoked-tokens.size", revoked, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String token) {
+        return revoked.getIfPresent(TokenDigest.of(token)) != null;
+    }
+
+    // новая реплика перечитывает топик с начала, чтобы получить все действующие отзывы
+    @KafkaListener(topics = TOPIC_TOKEN_REVOCATIONS, groupId = "token-revocations-${random.uuid}",
+            properties = {"auto.offset.reset=earliest"})
+    public void onTokenRevoked(String message) {
+        try {
+            TokenRevokedEvent event = objectMapper.readValue(message, TokenRevokedEvent.class);
+            if (event.getExpiresAt() > System.currentTimeMillis()) {
+                revoked.put(event.getDigest(), event.getExpiresAt());
+                verifiedTokenCache.evictDigest(event.getDigest());
+            }
+        } catch (Exception e) {
+            log.error("An error occurred", e);
+        }
+    }
+
+    private static class UntilTokenExpires implements Expiry<String, Long> {
+        @Override
+        public long expireAfterCreate(String key, Long expiresAt, long currentTime) {
+            return Math.max(0, TimeUnit.MILLISECONDS.toNanos(expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Long expiresAt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, expiresAt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Long expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
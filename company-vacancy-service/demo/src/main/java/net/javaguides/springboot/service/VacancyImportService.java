@@ -0,0 +1,158 @@
+package net.javaguides.springboot.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.VacancyDto;
+import net.javaguides.springboot.exception.ResourceNotFoundException;
+import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.CompanyRepository;
+import net.javaguides.springboot.repository.VacancyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Массовая загрузка вакансий из потока JSON-массива или CSV с заголовком.
+// Файл читается построчно, вставки идут JDBC-батчами, контекст персистентности
+// очищается каждые flushSize записей. Всё в одной транзакции: ошибка в любой строке - ничего не сохраняется.
+@Slf4j
+@Service
+public class VacancyImportService {
+
+    private final VacancyRepository vacancyRepository;
+    private final CompanyRepository companyRepository;
+    private final VacancySearchService vacancySearchService;
+    private final KafkaProducerService kafkaProducerService;
+    private final EntityCacheInvalidationService entityCacheInvalidationService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${vacancy.import.flush-size:500}")
+    private int flushSize;
+
+    @Autowired
+    public VacancyImportService(VacancyRepository vacancyRepository, CompanyRepository companyRepository,
+                                VacancySearchService vacancySearchService, KafkaProducerService kafkaProducerService,
+                                EntityCacheInvalidationService entityCacheInvalidationService,
+                                CatalogueCacheService catalogueCacheService,
+                                ObjectMapper objectMapper, Validator validator) {
+        this.vacancyRepository = vacancyRepository;
+        this.companyRepository = companyRepository;
+        this.vacancySearchService = vacancySearchService;
+        this.kafkaProducerService = kafkaProducerService;
+        this.entityCacheInvalidationService = entityCacheInvalidationService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    @Async
+    @Transactional
+    public CompletableFuture<Map<String, Object>> importVacancies(InputStream body, boolean csv) {
+        Map<Long, Company> companies = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        int row = 0;
+        try (MappingIterator<VacancyDto> rows = reader(csv).readValues(body)) {
+            while (rows.hasNext()) {
+                row++;
+                VacancyDto dto = rows.next();
+                validate(dto, row);
+
+                Vacancy vacancy = new Vacancy(dto);
+                vacancy.setCompany(company(dto.getCompany_id(), companies, row));
+                vacancyRepository.save(vacancy); // id из пула последовательности, INSERT уйдёт батчем
+                ids.add(vacancy.getVacancy_id());
+
+                if (row % flushSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw new IllegalArgumentException("Строка " + row + ": не удалось разобрать вакансию!");
+        }
+
+        // новые вакансии меняют ленты: кэш запросов остальных реплик сбрасывается после коммита
+        entityCacheInvalidationService.evictOnOtherReplicas(Vacancy.class, null);
+        catalogueCacheService.invalidate();
+        // поисковый индекс обновляем только после успешного коммита
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reindex(ids);
+            }
+        });
+        log.info("service import vacancies: {}", ids.size());
+        Map<String, Object> response = new HashMap<>();
+        response.put("imported", ids.size());
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private ObjectReader reader(boolean csv) {
+        if (csv) {
+            CsvSchema schema = CsvSchema.emptySchema().withHeader();
+            return csvMapper.readerFor(VacancyDto.class).with(schema);
+        }
+        return objectMapper.readerFor(VacancyDto.class);
+    }
+
+    private void validate(VacancyDto dto, int row) {
+        Set<ConstraintViolation<VacancyDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String fields = violations.stream()
+                    .map(v -> v.getPropertyPath().toString())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw new IllegalArgumentException("Строка " + row + ": не заполнены поля " + fields);
+        }
+    }
+
+    private Company company(Long companyId, Map<Long, Company> companies, int row) {
+        if (companyId == null) {
+            throw new IllegalArgumentException("Строка " + row + ": не указана компания!");
+        }
+        Company company = companies.computeIfAbsent(companyId, id -> companyRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Компания не найдена!")));
+        if (!company.getIs_accepted()) {
+            throw new ResourceNotFoundException("Невозможно создать вакансию: компания не подтверждена администратором");
+        }
+        // после clear() компания отсоединена, для внешнего ключа достаточно ссылки
+        return entityManager.contains(company) ? company : entityManager.getReference(Company.class, companyId);
+    }
+
+    private void reindex(List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += flushSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + flushSize));
+            vacancySearchService.indexAll(vacancyRepository.findAllById(chunk));
+            chunk.forEach(kafkaProducerService::sendVacancyIndexEvent);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package net.javaguides.springboot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboot.dto.VacancyItemDto;
+import net.javaguides.springboot.dto.VacancySearchResultDto;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.VacancyRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Встроенный полнотекстовый индекс открытых вакансий (Lucene, BM25, русская морфология).
+// В индексе хранится только id, сами вакансии подтягиваются из БД.
+@Slf4j
+@Service
+public class VacancySearchService {
+
+    public static final String TOPIC_VACANCY_INDEX = "vacancy-index";
+
+    private static final String FIELD_ID = "vacancy_id";
+    private static final String FIELD_FORMAT = "format";
+    private static final String FIELD_SCHEDULE = "schedule";
+    private static final String FIELD_EDUCATED = "is_educated";
+
+    // полнотекстовые поля и их вес при ранжировании
+    private static final String[] TEXT_FIELDS = {"name", "title", "description", "experience", "address"};
+    private static final Map<String, Float> BOOSTS = Map.of(
+            "name", 3.0f,
+            "title", 2.0f,
+            "description", 1.0f,
+            "experience", 0.5f,
+            "address", 0.5f);
+
+    private final VacancyRepository vacancyRepository;
+    private final Analyzer analyzer = new RussianAnalyzer();
+
+    @Value("${vacancy.search.index-dir:./data/vacancy-index}")
+    private String indexDir;
+
+    @Value("${vacancy.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${vacancy.search.max-window:1000}")
+    private int maxWindow;
+
+    @Value("${vacancy.feed.default-size:20}")
+    private int defaultSize;
+
+    @Value("${vacancy.feed.max-size:100}")
+    private int maxSize;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    // Пока идёт полное перестроение, изменения не пишутся в индекс сразу: снимок, прочитанный до удаления
+    // или правки, вернул бы удалённую вакансию или затёр новую версию старой. id копятся и после снимка
+    // переиндексируются по текущему состоянию БД.
+    private final Object rebuildLock = new Object();
+    private boolean rebuilding;
+    private final Set<Long> changedDuringRebuild = new LinkedHashSet<>();
+
+    @Autowired
+    public VacancySearchService(VacancyRepository vacancyRepository) {
+        this.vacancyRepository = vacancyRepository;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = FSDirectory.open(Paths.get(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        // индекс каждый раз строится заново из БД, старое содержимое не нужно
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // полное перестроение индекса после старта, не задерживает запуск приложения
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        synchronized (rebuildLock) {
+            rebuilding = true;
+        }
+        long lastId = 0L;
+        long indexed = 0L;
+        try {
+            List<Vacancy> batch;
+            do {
+                batch = vacancyRepository.findOpenAfterId(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (Vacancy vacancy : batch) {
+                    writer.updateDocument(idTerm(vacancy.getVacancy_id()), toDocument(vacancy));
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getVacancy_id();
+                    indexed += batch.size();
+                }
+            } while (batch.size() == rebuildBatchSize);
+            log.info("vacancy search index rebuilt: {} documents", indexed);
+        } catch (IOException | RuntimeException e) {
+            log.error("vacancy search index rebuild failed", e);
+        } finally {
+            replayChangedDuringRebuild();
+        }
+    }
+
+    // новые изменения ждут на rebuildLock, поэтому ничего не проскочит между повтором и снятием флага
+    private void replayChangedDuringRebuild() {
+        synchronized (rebuildLock) {
+            try {
+                for (Long id : changedDuringRebuild) {
+                    Optional<Vacancy> vacancy = vacancyRepository.findById(id);
+                    if (vacancy.isPresent()) {
+                        write(vacancy.get());
+                    } else {
+                        writer.deleteDocuments(idTerm(id));
+                    }
+                }
+                if (!changedDuringRebuild.isEmpty()) {
+                    log.info("reindexed {} vacancies changed during rebuild", changedDuringRebuild.size());
+                }
+                writer.commit();
+                searcherManager.maybeRefresh();
+            } catch (IOException | RuntimeException e) {
+                log.error("failed to reindex vacancies changed during rebuild", e);
+            } finally {
+                changedDuringRebuild.clear();
+                rebuilding = false;
+            }
+        }
+    }
+
+    // true - идёт перестроение, изменение отложено до его конца
+    private boolean deferredByRebuild(Long vacancyId) {
+        synchronized (rebuildLock) {
+            if (rebuilding) {
+                changedDuringRebuild.add(vacancyId);
+            }
+            return rebuilding;
+        }
+    }
+
+    // изменения, сделанные на других репликах
+    @KafkaListener(topics = TOPIC_VACANCY_INDEX, groupId = "vacancy-search-${random.uuid}")
+    public void onVacancyChanged(String message) {
+        Long id = Long.valueOf(message);
+        vacancyRepository.findById(id).ifPresentOrElse(this::index, () -> remove(id));
+    }
+
+    public void index(Vacancy vacancy) {
+        if (deferredByRebuild(vacancy.getVacancy_id())) {
+            return;
+        }
+        try {
+            write(vacancy);
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.error("failed to index vacancy {}", vacancy.getVacancy_id(), e);
+        }
+    }
+
+    // пакетная индексация (импорт): одно обновление поисковика на весь пакет
+    public void indexAll(List<Vacancy> vacancies) {
+        try {
+            for (Vacancy vacancy : vacancies) {
+                if (!deferredByRebuild(vacancy.getVacancy_id())) {
+                    write(vacancy);
+                }
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.error("failed to index {} vacancies", vacancies.size(), e);
+        }
+    }
+
+    public void remove(Long vacancyId) {
+        if (deferredByRebuild(vacancyId)) {
+            return;
+        }
+        try {
+            writer.deleteDocuments(idTerm(vacancyId));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.error("failed to remove vacancy {} from index", vacancyId, e);
+        }
+    }
+
+    public VacancySearchResultDto search(String text, String format, String schedule,
+                                         Boolean isEducated, Integer page, Integer size) {
+        int pageSize = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+        int window = (pageNumber + 1) * pageSize;
+        if (window > maxWindow) {
+            throw new IllegalArgumentException("Слишком далёкая страница поиска, уточните запрос!");
+        }
+
+        Query query = buildQuery(text, format, schedule, isEducated);
+        List<Long> ids = new ArrayList<>();
+        long total;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, window);
+                total = topDocs.totalHits.value;
+                StoredFields storedFields = searcher.storedFields();
+                ScoreDoc[] hits = topDocs.scoreDocs;
+                for (int i = pageNumber * pageSize; i < hits.length; i++) {
+                    ids.add(Long.valueOf(storedFields.document(hits[i].doc).get(FIELD_ID)));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Поиск временно недоступен!", e);
+        }
+
+        // Хиты, которых уже нет среди открытых вакансий в БД, отбрасываются и не считаются в total.
+        // Такие же хиты на других страницах проверить нельзя без загрузки всех id, поэтому, пока индекс
+        // не догнал БД (событие vacancy-index с другой реплики), total может быть немного завышен.
+        List<VacancyItemDto> items = hydrate(ids);
+        return new VacancySearchResultDto(items, Math.max(items.size(), total - (ids.size() - items.size())));
+    }
+
+    // открытая вакансия - в индекс, скрытая - из индекса
+    private void write(Vacancy vacancy) throws IOException {
+        if (Boolean.TRUE.equals(vacancy.getIsHidden())) {
+            writer.updateDocument(idTerm(vacancy.getVacancy_id()), toDocument(vacancy));
+        } else {
+            writer.deleteDocuments(idTerm(vacancy.getVacancy_id()));
+        }
+    }
+
+    private static Term idTerm(Long vacancyId) {
+        return new Term(FIELD_ID, vacancyId.toString());
+    }
+
+    Query buildQuery(String text, String format, String schedule, Boolean isEducated) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        if (text == null || text.isBlank()) {
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        } else {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(TEXT_FIELDS, analyzer, BOOSTS);
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+            try {
+                builder.add(parser.parse(QueryParser.escape(text.trim())), BooleanClause.Occur.MUST);
+            } catch (ParseException e) {
+                throw new IllegalArgumentException("Некорректный поисковый запрос!");
+            }
+        }
+        // фильтры не влияют на ранжирование
+        if (format != null && !format.isBlank()) {
+            builder.add(new TermQuery(new Term(FIELD_FORMAT, normalize(format))), BooleanClause.Occur.FILTER);
+        }
+        if (schedule != null && !schedule.isBlank()) {
+            builder.add(new TermQuery(new Term(FIELD_SCHEDULE, normalize(schedule))), BooleanClause.Occur.FILTER);
+        }
+        if (isEducated != null) {
+            builder.add(new TermQuery(new Term(FIELD_EDUCATED, isEducated.toString())), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    static Document toDocument(Vacancy vacancy) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, vacancy.getVacancy_id().toString(), Field.Store.YES));
+        addText(doc, "name", vacancy.getName());
+        addText(doc, "title", vacancy.getTitle());
+        addText(doc, "description", vacancy.getDescription());
+        addText(doc, "experience", vacancy.getExperience());
+        addText(doc, "address", vacancy.getAddress());
+        if (vacancy.getFormat() != null) {
+            doc.add(new StringField(FIELD_FORMAT, normalize(vacancy.getFormat()), Field.Store.NO));
+        }
+        if (vacancy.getSchedule() != null) {
+            doc.add(new StringField(FIELD_SCHEDULE, normalize(vacancy.getSchedule()), Field.Store.NO));
+        }
+        doc.add(new StringField(FIELD_EDUCATED, String.valueOf(Boolean.TRUE.equals(vacancy.getIs_educated())), Field.Store.NO));
+        return doc;
+    }
+
+    private static void addText(Document doc, String field, String value) {
+        if (value != null) {
+            doc.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // вакансии в порядке релевантности; удалённые или скрытые после индексации отбрасываем
+    private List<VacancyItemDto> hydrate(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, VacancyItemDto> byId = vacancyRepository.findOpenItemsByIds(ids).stream()
+                .collect(Collectors.toMap(VacancyItemDto::getVacancy_id, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
@@ -3,13 +3,21 @@ package net.javaguides.springboot.service;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import net.javaguides.springboot.dto.VacancyDto;
+import net.javaguides.springboot.dto.VacancyItemDto;
+import net.javaguides.springboot.dto.VacancyPageDto;
+import net.javaguides.springboot.dto.VacancySearchResultDto;
+import net.javaguides.springboot.dto.VacancyVersionDto;
 import net.javaguides.springboot.exception.ResourceNotFoundException;
 import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Response;
 import net.javaguides.springboot.model.Vacancy;
 import net.javaguides.springboot.repository.CompanyRepository;
 import net.javaguides.springboot.repository.VacancyRepository;
-import net.javaguides.springboot.util.JwtUtil;
+import net.javaguides.springboot.util.ResourceVersion;
+import net.javaguides.springboot.util.VacancyCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -26,13 +34,28 @@ public class VacancyService {
 
     private final VacancyRepository vacancyRepository;
     private final CompanyRepository companyRepository;
-    private final JwtUtil jwtUtil;
+    private final VacancySearchService vacancySearchService;
+    private final KafkaProducerService kafkaProducerService;
+    private final EntityCacheInvalidationService entityCacheInvalidationService;
+    private final CatalogueCacheService catalogueCacheService;
+
+    @Value("${vacancy.feed.default-size:20}")
+    private int feedDefaultSize;
+
+    @Value("${vacancy.feed.max-size:100}")
+    private int feedMaxSize;
 
     @Autowired
-    public VacancyService(VacancyRepository vacancyRepository, CompanyRepository companyRepository, JwtUtil jwtUtil) {
+    public VacancyService(VacancyRepository vacancyRepository, CompanyRepository companyRepository,
+                          VacancySearchService vacancySearchService, KafkaProducerService kafkaProducerService,
+                          EntityCacheInvalidationService entityCacheInvalidationService,
+                          CatalogueCacheService catalogueCacheService) {
         this.vacancyRepository = vacancyRepository;
         this.companyRepository = companyRepository;
-        this.jwtUtil = jwtUtil;
+        this.vacancySearchService = vacancySearchService;
+        this.kafkaProducerService = kafkaProducerService;
+        this.entityCacheInvalidationService = entityCacheInvalidationService;
+        this.catalogueCacheService = catalogueCacheService;
     }
 
     @Async
@@ -50,36 +73,112 @@ public class VacancyService {
 
 
         log.info("service create vacancy");
-        return CompletableFuture.completedFuture(vacancyRepository.save(vacancy));
+        Vacancy saved = vacancyRepository.save(vacancy);
+        reindex(saved);
+        return CompletableFuture.completedFuture(saved);
+    }
+
+    @Async
+    public CompletableFuture<VacancyPageDto> getVacancyFeed(String cursor, Integer size) {
+        int pageSize = feedPageSize(size);
+        String position = cursor == null || cursor.isBlank() ? null : cursor;
+        log.info("service get vacancy feed");
+        return CompletableFuture.completedFuture(catalogueCacheService.get("feed:" + pageSize + ":" + position,
+                VacancyPageDto.class, () -> loadFeed(position, pageSize)));
     }
 
+    // версия ленты для условного GET - версия каталога в Redis, без неё ответ идёт без ETag
     @Async
-    public CompletableFuture<List<Vacancy>> getAllVacancies() {
-        log.info("service get all vacancies");
-        return CompletableFuture.completedFuture(vacancyRepository.findByIsHiddenTrue());
+    public CompletableFuture<ResourceVersion> getFeedVersion() {
+        return CompletableFuture.completedFuture(catalogueCacheService.currentVersion());
+    }
+
+    private VacancyPageDto loadFeed(String cursor, int pageSize) {
+        // берём на одну запись больше, чтобы понять, есть ли следующая страница
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<VacancyItemDto> vacancies;
+        if (cursor == null) {
+            vacancies = vacancyRepository.findFeed(limit);
+        } else {
+            VacancyCursor position = VacancyCursor.decode(cursor);
+            vacancies = vacancyRepository.findFeedAfter(position.getDate(), position.getVacancyId(), limit);
+        }
+        return toPage(vacancies, pageSize);
     }
 
+    // открытые вакансии одной компании, та же курсорная пагинация, что и у ленты
     @Async
-    public CompletableFuture<List<Vacancy>> getMyVacancies(String token) {
-        String username = jwtUtil.extractUsername(token);
+    public CompletableFuture<VacancyPageDto> getCompanyVacancies(Long companyId, String cursor, Integer size) {
+        int pageSize = feedPageSize(size);
+        String position = cursor == null || cursor.isBlank() ? null : cursor;
+        log.info("service get company vacancies");
+        return CompletableFuture.completedFuture(catalogueCacheService.get(
+                "company-vacancies:" + companyId + ":" + pageSize + ":" + position,
+                VacancyPageDto.class, () -> loadCompanyVacancies(companyId, position, pageSize)));
+    }
+
+    private VacancyPageDto loadCompanyVacancies(Long companyId, String cursor, int pageSize) {
+        // findById, а не existsById: компания берётся из second-level cache
+        if (companyRepository.findById(companyId).isEmpty()) {
+            throw new ResourceNotFoundException("Компания не найдена!");
+        }
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<VacancyItemDto> vacancies;
+        if (cursor == null) {
+            vacancies = vacancyRepository.findCompanyFeed(companyId, limit);
+        } else {
+            VacancyCursor position = VacancyCursor.decode(cursor);
+            vacancies = vacancyRepository.findCompanyFeedAfter(companyId, position.getDate(),
+                    position.getVacancyId(), limit);
+        }
+        return toPage(vacancies, pageSize);
+    }
+
+    private int feedPageSize(Integer size) {
+        return size == null ? feedDefaultSize : Math.max(1, Math.min(size, feedMaxSize));
+    }
+
+    // лишняя (pageSize + 1)-я запись означает, что есть следующая страница
+    private static VacancyPageDto toPage(List<VacancyItemDto> vacancies, int pageSize) {
+        String nextCursor = null;
+        if (vacancies.size() > pageSize) {
+            vacancies = vacancies.subList(0, pageSize);
+            VacancyItemDto last = vacancies.get(pageSize - 1);
+            nextCursor = new VacancyCursor(last.getDate(), last.getVacancy_id()).encode();
+        }
+        return new VacancyPageDto(vacancies, nextCursor);
+    }
+
+    @Async
+    public CompletableFuture<List<VacancyItemDto>> getMyVacancies(String username) {
         log.info("service get my vacancies");
-        return CompletableFuture.completedFuture(vacancyRepository.findByCompany_userName(username));
+        return CompletableFuture.completedFuture(vacancyRepository.findItemsByCompanyUserName(username));
     }
 
     @Async
-    public CompletableFuture<List<Vacancy>> getAllVacanciesByAdmin() {
+    public CompletableFuture<List<VacancyItemDto>> getAllVacanciesByAdmin() {
         log.info("service get all vacancies by admin");
-        return CompletableFuture.completedFuture(vacancyRepository.findAll());
+        return CompletableFuture.completedFuture(vacancyRepository.findAllItems());
     }
 
     @Async
     public CompletableFuture<Vacancy> getOneVacancy(Long id) {
-        Vacancy vacancy = vacancyRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Вакансия не найдена!"));
+        Vacancy vacancy = catalogueCacheService.get("vacancy:" + id, Vacancy.class, () -> vacancyRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Вакансия не найдена!")));
         log.info("service get one vacancy");
         return CompletableFuture.completedFuture(vacancy);
     }
 
+    // версия карточки вакансии для условного GET: один запрос, сама вакансия не загружается
+    @Async
+    public CompletableFuture<ResourceVersion> getVacancyVersion(Long id) {
+        VacancyVersionDto version = vacancyRepository.findVersion(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Вакансия не найдена!"));
+        return CompletableFuture.completedFuture(version.toResourceVersion());
+    }
+
     @Async
     public CompletableFuture<Vacancy> updateVacancy(Long id, @Valid Vacancy vacancyDetails) {
         Vacancy vacancy = vacancyRepository.findById(id)
@@ -88,7 +187,9 @@ public class VacancyService {
         vacancyDetails.setVacancy_id(vacancy.getVacancy_id());
         vacancyDetails.setCompany(vacancy.getCompany());
         vacancyDetails.setDate(new Date()); //тригер обновления
-        return CompletableFuture.completedFuture(vacancyRepository.save(vacancyDetails));
+        Vacancy saved = vacancyRepository.save(vacancyDetails);
+        reindex(saved);
+        return CompletableFuture.completedFuture(saved);
     }
 
     @Async
@@ -97,9 +198,29 @@ public class VacancyService {
                 .orElseThrow(() -> new ResourceNotFoundException("Вакансия не найдена!"));
 
         vacancyRepository.delete(vacancy);
+        vacancySearchService.remove(id);
+        kafkaProducerService.sendVacancyIndexEvent(id);
+        entityCacheInvalidationService.evictOnOtherReplicas(Vacancy.class, id);
+        // у откликов на вакансию база обнуляет vacancy_id (ON DELETE SET NULL)
+        entityCacheInvalidationService.evictEverywhere(Response.class);
+        catalogueCacheService.invalidate();
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Вакансия успешно удалена!");
         return CompletableFuture.completedFuture(ResponseEntity.ok(response).getBody());
     }
 
+    @Async
+    public CompletableFuture<VacancySearchResultDto> searchVacancies(String text, String format, String schedule,
+                                                                    Boolean isEducated, Integer page, Integer size) {
+        log.info("service search vacancies");
+        return CompletableFuture.completedFuture(vacancySearchService.search(text, format, schedule, isEducated, page, size));
+    }
+
+    // локальный индекс обновляем сразу, остальные реплики - через Kafka
+    private void reindex(Vacancy vacancy) {
+        vacancySearchService.index(vacancy);
+        kafkaProducerService.sendVacancyIndexEvent(vacancy.getVacancy_id());
+        entityCacheInvalidationService.evictOnOtherReplicas(Vacancy.class, vacancy.getVacancy_id());
+        catalogueCacheService.invalidate();
+    }
 }
@@ -1,14 +1,12 @@
 package net.javaguides.springboot.util;
 
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
+import net.javaguides.springboot.util.VerifiedTokenCache.VerifiedToken;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,17 +17,18 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
-
-import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    @Value("${jwt.secret.key}")
-    private String jwtSecret;
+    private final JwtUtil jwtUtil;
+
+    @Autowired
+    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
 
     @Override
     public void doFilterInternal(HttpServletRequest request,
@@ -41,7 +40,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Обработка запросов без токена
         String requestURI = request.getRequestURI();
-        if (requestURI.equals("/api/auth/register") || requestURI.equals("/api/auth/login") || requestURI.equals("/api/auth/confirm") || requestURI.equals("/api/auth/confirm-email-change")) {
+        if (requestURI.startsWith("/actuator/") || requestURI.equals("/api/auth/register") || requestURI.equals("/api/auth/login") || requestURI.equals("/api/auth/confirm") || requestURI.equals("/api/auth/confirm-email-change")) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -49,18 +48,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String jwtToken = authHeader.substring(7);
             try {
-                // Создаем секретный ключ из конфигурации
-                SecretKey secretKey = new SecretKeySpec(jwtSecret.getBytes(), SignatureAlgorithm.HS256.getJcaName());
-
-                // Парсим JWT токен и извлекаем данные
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(secretKey)
-                        .build()
-                        .parseClaimsJws(jwtToken)
-                        .getBody();
+                // Подпись проверяется только для токенов, которых еще нет в кэше; отзыв - всегда
+                VerifiedToken verified = jwtUtil.validateToken(jwtToken);
 
-                String username = claims.getSubject();
-                Long roleId = claims.get("role_id", Long.class); // Здесь можно изменить тип в зависимости от данных в токене
+                String username = verified.getUsername();
+                Long roleId = verified.getRoleId();
 
                 List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + roleId));
 
@@ -77,7 +69,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
 
-            } catch (JwtException e) {
+            } catch (JwtException | IllegalArgumentException e) {
                 sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED);
                 return; // Прерываем дальнейшее выполнение
             }
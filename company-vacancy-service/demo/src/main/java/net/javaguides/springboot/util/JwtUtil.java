@@ -2,47 +2,70 @@ package net.javaguides.springboot.util;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import net.javaguides.springboot.service.TokenRevocationService;
+import net.javaguides.springboot.util.VerifiedTokenCache.VerifiedToken;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret.key}")
-    private String jwtSecret;
+    // ключ и парсер неизменяемы и потокобезопасны - создаются один раз
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    public JwtUtil(@Value("${jwt.secret.key}") String jwtSecret, VerifiedTokenCache verifiedTokenCache,
+                   TokenRevocationService tokenRevocationService) {
+        this.signingKey = new SecretKeySpec(jwtSecret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationService = tokenRevocationService;
+    }
 
     // Метод для генерации токена
     public String generateToken(String username, Long roleId) {
         Claims claims = Jwts.claims().setSubject(username);
         claims.put("role_id", roleId); // Добавляем ID роли в токен
 
-        SecretKey secretKey = new SecretKeySpec(jwtSecret.getBytes(), SignatureAlgorithm.HS256.getJcaName());
-
         return Jwts.builder()
                 .setClaims(claims) // Устанавливаем данные в токен
                 .setIssuedAt(new Date(System.currentTimeMillis())) // Устанавливаем дату выдачи
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24 * 7)) // Время жизни токена (неделя)
-                .signWith(secretKey) // Подписываем токен
+                .signWith(signingKey) // Подписываем токен
                 .compact(); // Создаем токен
     }
     public String extractUsername(String token) {
         return extractClaims(token).getSubject(); // В subject хранится username
     }
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())  // Передаем ключ
-                .build()
-                .parseClaimsJws(token) // Разбираем токен
+        return jwtParser
+                .parseClaimsJws(token) // Разбираем токен и проверяем подпись
                 .getBody(); // Достаем payload (данные)
     }
-    private SecretKey getSigningKey() {
-        return new SecretKeySpec(jwtSecret.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+
+    // Подпись и срок действия проверяются только для токенов, которых еще нет в кэше,
+    // отзыв (logout в auth-service) - всегда, по локальной копии черного списка
+    public VerifiedToken validateToken(String token) {
+        VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified == null) {
+            verified = verifiedTokenCache.put(token, extractClaims(token));
+        }
+        if (tokenRevocationService.isRevoked(token)) {
+            throw new JwtException("Токен отозван");
+        }
+        return verified;
     }
 }
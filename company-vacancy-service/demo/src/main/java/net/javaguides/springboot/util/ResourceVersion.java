@@ -0,0 +1,75 @@
+package net.javaguides.springboot.util;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Версия ресурса для условных GET: сильный ETag и Last-Modified.
+// Версию дают дешёвые запросы (VacancyRepository.findVersion и т.п.), сам ресурс при 304 не загружается.
+@Getter
+public class ResourceVersion {
+
+    private final String etag;
+    private final long lastModified; // мс, 0 - неизвестно
+
+    public ResourceVersion(String tag, long lastModified) {
+        this.etag = "\"" + tag + "\"";
+        this.lastModified = lastModified;
+    }
+
+    // If-None-Match важнее If-Modified-Since; W/-теги сравниваются слабо (их делает nginx при gzip)
+    public boolean matches(HttpHeaders request) {
+        if (!request.getIfNoneMatch().isEmpty()) {
+            return request.getIfNoneMatch().stream()
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        // в заголовке секунды, миллисекунды версии отбрасываем
+        return ifModifiedSince >= 0 && lastModified > 0 && lastModified / 1000 * 1000 <= ifModifiedSince;
+    }
+
+    public <T> ResponseEntity<T> ok(T body) {
+        return headers(ResponseEntity.ok()).body(body);
+    }
+
+    public <T> ResponseEntity<T> notModified() {
+        return headers(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+    }
+
+    private ResponseEntity.BodyBuilder headers(ResponseEntity.BodyBuilder builder) {
+        builder.eTag(etag);
+        if (lastModified > 0) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    // 304 по текущей версии без загрузки ресурса; иначе ответ с версией, посчитанной по самому ответу
+    // (он мог прийти из кэша и быть старше текущей версии - тогда следующий запрос просто получит 200)
+    public static <T> CompletableFuture<ResponseEntity<T>> respond(HttpHeaders request,
+                                                                   CompletableFuture<ResourceVersion> current,
+                                                                   Supplier<CompletableFuture<T>> loader,
+                                                                   Function<T, ResourceVersion> versionOf) {
+        return current.thenCompose(version -> version != null && version.matches(request)
+                ? CompletableFuture.completedFuture(version.<T>notModified())
+                : loader.get().thenApply(body -> versionOf.apply(body).ok(body)));
+    }
+
+    // версия, прочитанная до загрузки, не новее ответа; null - версия неизвестна, ответ без заголовков
+    public static <T> CompletableFuture<ResponseEntity<T>> respond(HttpHeaders request,
+                                                                   CompletableFuture<ResourceVersion> current,
+                                                                   Supplier<CompletableFuture<T>> loader) {
+        return current.thenCompose(version -> {
+            if (version == null) {
+                return loader.get().thenApply(ResponseEntity::ok);
+            }
+            return respond(request, CompletableFuture.completedFuture(version), loader, body -> version);
+        });
+    }
+}
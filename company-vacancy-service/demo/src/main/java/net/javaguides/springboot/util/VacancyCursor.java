@@ -0,0 +1,50 @@
+package net.javaguides.springboot.util;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+// Непрозрачный курсор ленты вакансий: позиция последней выданной записи (date, vacancy_id).
+// vacancy.date - TIMESTAMP(6), поэтому дата хранится целиком (секунды и наносекунды), а не в миллисекундах:
+// иначе записи, различающиеся долями миллисекунды, пропускались бы или повторялись на следующей странице.
+@Getter
+public class VacancyCursor {
+
+    private final Date date;
+    private final Long vacancyId;
+
+    public VacancyCursor(Date date, Long vacancyId) {
+        this.date = date;
+        this.vacancyId = vacancyId;
+    }
+
+    public String encode() {
+        // у java.sql.Timestamp, который возвращает Hibernate, toInstant сохраняет наносекунды
+        Instant instant = date.toInstant();
+        String raw = instant.getEpochSecond() + ":" + instant.getNano() + ":" + vacancyId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static VacancyCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(raw);
+            }
+            long nanos = Long.parseLong(parts[1]);
+            if (nanos < 0 || nanos >= 1_000_000_000L) {
+                throw new IllegalArgumentException(raw);
+            }
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), nanos);
+            return new VacancyCursor(Timestamp.from(instant), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            throw new IllegalArgumentException("Некорректный курсор!");
+        }
+    }
+}
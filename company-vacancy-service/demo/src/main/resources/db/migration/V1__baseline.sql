@@ -0,0 +1,45 @@
+-- Схема на момент перехода с ddl-auto=update на миграции.
+-- Существующие базы помечаются этой версией (spring.flyway.baseline-on-migrate) и её не выполняют.
+
+CREATE TABLE company (
+    company_id  BIGINT        NOT NULL,
+    address     VARCHAR(1000) NOT NULL,
+    date_reg    TIMESTAMP(6)  NOT NULL,
+    director    VARCHAR(255)  NOT NULL,
+    inn         VARCHAR(255)  NOT NULL,
+    is_accepted BOOLEAN,
+    kpp         VARCHAR(255)  NOT NULL,
+    name        VARCHAR(255)  NOT NULL,
+    ogrn        VARCHAR(255)  NOT NULL,
+    user_name   VARCHAR(255),
+    PRIMARY KEY (company_id)
+);
+
+CREATE TABLE vacancy (
+    vacancy_id  BIGINT        NOT NULL,
+    address     VARCHAR(1000),
+    contact     VARCHAR(255)  NOT NULL,
+    date        TIMESTAMP(6)  NOT NULL,
+    description VARCHAR(1000),
+    experience  VARCHAR(1000),
+    format      VARCHAR(255),
+    hours       VARCHAR(255),
+    is_hidden   BOOLEAN,
+    is_educated BOOLEAN,
+    name        VARCHAR(255)  NOT NULL,
+    schedule    VARCHAR(255),
+    title       VARCHAR(255)  NOT NULL,
+    company_id  BIGINT        NOT NULL,
+    PRIMARY KEY (vacancy_id),
+    CONSTRAINT fk_vacancy_company FOREIGN KEY (company_id) REFERENCES company
+);
+
+CREATE TABLE response (
+    response_id BIGINT       NOT NULL,
+    date        TIMESTAMP(6) NOT NULL,
+    is_viewed   BOOLEAN      NOT NULL,
+    user_name   VARCHAR(255) NOT NULL,
+    vacancy_id  BIGINT,
+    PRIMARY KEY (response_id),
+    CONSTRAINT fk_response_vacancy FOREIGN KEY (vacancy_id) REFERENCES vacancy ON DELETE SET NULL
+);
@@ -0,0 +1,14 @@
+-- Последовательности для pooled-генераторов (allocationSize = 50).
+-- В старых базах ключи были IDENTITY, поэтому сдвигаем каждую последовательность за текущий максимум id:
+-- pooled-оптимизатор считает значение последовательности верхней границей блока.
+
+CREATE SEQUENCE IF NOT EXISTS company_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS vacancy_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS response_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('company_seq', GREATEST((SELECT COALESCE(MAX(company_id), 0) FROM company),
+                                      (SELECT last_value FROM company_seq)));
+SELECT setval('vacancy_seq', GREATEST((SELECT COALESCE(MAX(vacancy_id), 0) FROM vacancy),
+                                      (SELECT last_value FROM vacancy_seq)));
+SELECT setval('response_seq', GREATEST((SELECT COALESCE(MAX(response_id), 0) FROM response),
+                                       (SELECT last_value FROM response_seq)));
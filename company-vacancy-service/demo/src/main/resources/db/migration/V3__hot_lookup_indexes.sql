@@ -0,0 +1,23 @@
+-- Индексы под запросы репозиториев. Имена проверяет MigrationIndexTest (EXPLAIN).
+
+-- Лента открытых вакансий (findFeed, findFeedAfter): закрытые вакансии в индекс не попадают.
+-- Заменяет idx_vacancy_feed (is_hidden, date, vacancy_id), который создавал ddl-auto.
+DROP INDEX IF EXISTS idx_vacancy_feed;
+CREATE INDEX idx_vacancy_feed ON vacancy (date DESC, vacancy_id DESC) WHERE is_hidden;
+
+-- Вакансии компании (findByCompany_userName) и удаление компании
+CREATE INDEX IF NOT EXISTS idx_vacancy_company ON vacancy (company_id);
+
+-- Компании пользователя (findByUserName, findByCompany_userName)
+CREATE INDEX IF NOT EXISTS idx_company_user ON company (user_name);
+
+-- Страница откликов (findItemsByUserName) и её count: vacancy_id в INCLUDE,
+-- чтобы обе выборки по response обходились без чтения таблицы.
+DROP INDEX IF EXISTS idx_response_user;
+CREATE INDEX idx_response_user ON response (user_name, date DESC, response_id DESC) INCLUDE (vacancy_id);
+
+-- markViewedByUserName трогает только непросмотренные - их обычно единицы
+CREATE INDEX IF NOT EXISTS idx_response_user_unviewed ON response (user_name) WHERE NOT is_viewed;
+
+-- Отклики на вакансию (findByVacancy) и ON DELETE SET NULL при удалении вакансии
+CREATE INDEX IF NOT EXISTS idx_response_vacancy ON response (vacancy_id);
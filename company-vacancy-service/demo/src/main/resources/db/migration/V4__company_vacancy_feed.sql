@@ -0,0 +1,3 @@
+-- Открытые вакансии компании (findCompanyFeed, findCompanyFeedAfter, countOpenByCompanyId):
+-- превью в карточке компании и постраничный список /company/{id}/vacancy.
+CREATE INDEX IF NOT EXISTS idx_vacancy_company_feed ON vacancy (company_id, date DESC, vacancy_id DESC) WHERE is_hidden;
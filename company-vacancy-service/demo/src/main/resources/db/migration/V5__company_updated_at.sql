@@ -0,0 +1,3 @@
+-- Время последнего изменения компании: вместе с vacancy.date даёт ETag / Last-Modified
+-- карточек вакансии и компании без загрузки самих сущностей.
+ALTER TABLE company ADD COLUMN IF NOT EXISTS updated_at timestamp(6) NOT NULL DEFAULT now();
@@ -0,0 +1,12 @@
+-- Transactional outbox: события для Kafka пишутся в одной транзакции с данными,
+-- OutboxRelay отправляет их пачками в порядке записи (created_at, id; индекс - V7__outbox_order) и удаляет.
+CREATE SEQUENCE IF NOT EXISTS outbox_event_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id         BIGINT       NOT NULL,
+    topic      VARCHAR(255) NOT NULL,
+    event_key  VARCHAR(255),
+    payload    TEXT         NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
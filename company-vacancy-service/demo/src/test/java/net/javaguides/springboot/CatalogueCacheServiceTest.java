@@ -0,0 +1,174 @@
+package net.javaguides.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.javaguides.springboot.dto.VacancyPageDto;
+import net.javaguides.springboot.exception.ResourceNotFoundException;
+import net.javaguides.springboot.service.CatalogueCacheService;
+import net.javaguides.springboot.util.ResourceVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Две "реплики" с общим Redis: версия каталога, stale-while-revalidate и одна загрузка на промах.
+@Testcontainers
+public class CatalogueCacheServiceTest {
+
+    @Container
+    private static final GenericContainer<?> redis = new GenericContainer<>("redis:7").withExposedPorts(6379);
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CatalogueCacheService replica1;
+    private CatalogueCacheService replica2;
+
+    @BeforeEach
+    void setUp() {
+        replica1 = cache(redis.getHost(), redis.getMappedPort(6379));
+        replica2 = cache(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactories.get(0).getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    @Test
+    void servesFromRedisUntilVersionIsBumped() {
+        assertEquals("v1", replica1.get("feed", VacancyPageDto.class, () -> page("v1")).getNextCursor());
+        assertEquals("v1", replica2.get("feed", VacancyPageDto.class, () -> page("v2")).getNextCursor());
+        assertEquals(1, loads.get());
+
+        replica1.invalidate();
+
+        assertEquals("v2", replica2.get("feed", VacancyPageDto.class, () -> page("v2")).getNextCursor());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void currentVersionChangesWithCatalogue() {
+        ResourceVersion initial = replica1.currentVersion();
+        assertEquals(initial.getEtag(), replica2.currentVersion().getEtag());
+
+        replica2.invalidate();
+
+        ResourceVersion changed = replica1.currentVersion();
+        assertNotEquals(initial.getEtag(), changed.getEtag());
+        assertTrue(changed.getLastModified() >= initial.getLastModified());
+        assertNull(cache("localhost", 1).currentVersion());
+    }
+
+    @Test
+    void servesStaleAndRefreshesInBackground() throws Exception {
+        ReflectionTestUtils.setField(replica1, "freshTtl", Duration.ofMillis(1));
+        replica1.get("feed", VacancyPageDto.class, () -> page("v1"));
+        Thread.sleep(5);
+
+        // устаревший ответ отдаётся сразу, новый появляется после фонового обновления
+        assertEquals("v1", replica1.get("feed", VacancyPageDto.class, () -> page("v2")).getNextCursor());
+        long deadline = System.currentTimeMillis() + 5000;
+        String cursor = "v1";
+        while (!cursor.equals("v2") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            cursor = replica2.get("feed", VacancyPageDto.class, () -> page("v3")).getNextCursor();
+        }
+        assertEquals("v2", cursor);
+    }
+
+    @Test
+    void concurrentMissesOnBothReplicasLoadOnce() throws Exception {
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callersPool = Executors.newFixedThreadPool(callers);
+        List<Future<VacancyPageDto>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            CatalogueCacheService replica = i % 2 == 0 ? replica1 : replica2;
+            results.add(callersPool.submit(() -> {
+                start.await();
+                return replica.get("feed", VacancyPageDto.class, () -> {
+                    sleep(300);
+                    return page("v1");
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<VacancyPageDto> result : results) {
+            assertEquals("v1", result.get().getNextCursor());
+        }
+        callersPool.shutdown();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loaderErrorsAreNotCached() {
+        assertThrows(ResourceNotFoundException.class, () -> replica1.get("company:1", VacancyPageDto.class, () -> {
+            loads.incrementAndGet();
+            throw new ResourceNotFoundException("Компания не найдена!");
+        }));
+        assertEquals("v1", replica1.get("company:1", VacancyPageDto.class, () -> page("v1")).getNextCursor());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void fallsBackToLoaderWhenRedisIsDown() {
+        CatalogueCacheService offline = cache("localhost", 1);
+
+        assertEquals("v1", offline.get("feed", VacancyPageDto.class, () -> page("v1")).getNextCursor());
+        assertEquals("v2", offline.get("feed", VacancyPageDto.class, () -> page("v2")).getNextCursor());
+        offline.invalidate();
+    }
+
+    private VacancyPageDto page(String marker) {
+        loads.incrementAndGet();
+        return new VacancyPageDto(List.of(), marker);
+    }
+
+    private CatalogueCacheService cache(String host, int port) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+        CatalogueCacheService cache = new CatalogueCacheService(new StringRedisTemplate(connectionFactory),
+                new ObjectMapper(), executor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "freshTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(cache, "staleTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cache, "lockTtl", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(cache, "lockPoll", Duration.ofMillis(20));
+        return cache;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,6 +15,7 @@ import net.javaguides.springboot.exception.ResourceNotFoundException;
 import net.javaguides.springboot.model.Company;
 import net.javaguides.springboot.service.CompanyService;
 import net.javaguides.springboot.util.JwtUtil;
+import net.javaguides.springboot.util.ResourceVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +32,8 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -92,7 +96,7 @@ public class CompanyControllerTest {
         token = jwtUtil.generateToken("user1", 1L);
         when(companyService.getAllCompanies()).thenReturn(CompletableFuture.completedFuture(companies));
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(get("/api/comp-vac/company")
+        MvcResult result = performAsync(get("/api/comp-vac/company")
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk())
                 .andReturn(); // Получаем результат выполнения запроса
@@ -110,7 +114,7 @@ public class CompanyControllerTest {
 
         token = jwtUtil.generateToken("user1", 1L);
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(get("/api/comp-vac/company")
+        MvcResult result = performAsync(get("/api/comp-vac/company")
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk())
                 .andReturn(); // Получаем результат выполнения запроса
@@ -164,7 +168,7 @@ public class CompanyControllerTest {
         token = jwtUtil.generateToken("user1", 1L);
         when(companyService.createCompany(any(Company.class))).thenReturn(CompletableFuture.completedFuture(company1));
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(post("/api/comp-vac/company")
+        MvcResult result = performAsync(post("/api/comp-vac/company")
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(company1)))
@@ -236,9 +240,11 @@ public class CompanyControllerTest {
         token = jwtUtil.generateToken("user1", 1L);
         CompanyOneDto companyOneDto = new CompanyOneDto();
         companyOneDto.setCompany_id(id);
+        when(companyService.getCompanyCardVersion(id))
+                .thenReturn(CompletableFuture.completedFuture(new ResourceVersion("c" + id, 0)));
         when(companyService.getOneCompany(id)).thenReturn(CompletableFuture.completedFuture(companyOneDto));
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(get("/api/comp-vac/company/{id}", id)
+        MvcResult result = performAsync(get("/api/comp-vac/company/{id}", id)
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk())
                 .andReturn(); // Получаем результат выполнения запроса
@@ -256,7 +262,8 @@ public class CompanyControllerTest {
         Long id = 52L;
         token = jwtUtil.generateToken("user1", 1L);
 
-        when(companyService.getOneCompany(id)).thenThrow(new ResourceNotFoundException("Компании с id: " + id + " не существует!"));
+        // 404 отдаёт уже проверка версии, карточка не собирается
+        when(companyService.getCompanyCardVersion(id)).thenThrow(new ResourceNotFoundException("Компании с id: " + id + " не существует!"));
         // Выполнение запроса и проверка результата
         MvcResult result = mockMvc.perform(get("/api/comp-vac/company/{id}", id)
                         .header("Authorization", "Bearer " + token))
@@ -266,7 +273,8 @@ public class CompanyControllerTest {
         String responseBody = result.getResponse().getContentAsString();
         System.out.println(responseBody);
 
-        verify(companyService, times(1)).getOneCompany(id);
+        verify(companyService, times(1)).getCompanyCardVersion(id);
+        verify(companyService, times(0)).getOneCompany(id);
     }
 
     // Company-test-update
@@ -282,7 +290,7 @@ public class CompanyControllerTest {
 
         when(companyService.updateCompany(anyLong(), any(Company.class))).thenReturn(CompletableFuture.completedFuture(company1));
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(put("/api/comp-vac/company/{id}", id)
+        MvcResult result = performAsync(put("/api/comp-vac/company/{id}", id)
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(company1)))
@@ -357,7 +365,7 @@ public class CompanyControllerTest {
 
         when(companyService.deleteCompany(id)).thenReturn(CompletableFuture.completedFuture(ResponseEntity.ok(response).getBody()));
         // Выполнение запроса и проверка результата
-        MvcResult result = mockMvc.perform(delete("/api/comp-vac/company/{id}", id)
+        MvcResult result = performAsync(delete("/api/comp-vac/company/{id}", id)
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -428,4 +436,12 @@ public class CompanyControllerTest {
         Company company2 = new Company(name, "52", kpp, ogrn, address, director, date_reg, isAccepted);
         return Arrays.asList(company1, company2);
     }
-}
\ No newline at end of file
+
+    // контроллеры возвращают CompletableFuture - тело ответа приходит в ASYNC-диспатче
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
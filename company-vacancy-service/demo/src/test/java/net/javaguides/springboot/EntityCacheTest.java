@@ -0,0 +1,233 @@
+package net.javaguides.springboot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Response;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.CompanyRepository;
+import net.javaguides.springboot.repository.ResponseRepository;
+import net.javaguides.springboot.repository.VacancyRepository;
+import net.javaguides.springboot.service.EntityCacheInvalidationService;
+import net.javaguides.springboot.service.KafkaProducerService;
+import net.javaguides.springboot.service.VacancySearchService;
+import net.javaguides.springboot.util.JwtUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Повторное чтение каталога не ходит в базу, а изменения - свои и других реплик - видны сразу.
+@AutoConfigureMockMvc
+@SpringBootTest
+@Testcontainers
+public class EntityCacheTest {
+
+    private static final int VACANCIES = 6;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        // только второй уровень Hibernate, общий кэш ответов в Redis проверяет CatalogueCacheServiceTest
+        registry.add("catalogue-cache.enabled", () -> "false");
+        // опрос outbox по расписанию сбивал бы счётчик запросов
+        registry.add("outbox.relay.enabled", () -> "false");
+    }
+
+    @MockitoBean
+    private VacancySearchService vacancySearchService;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private VacancyRepository vacancyRepository;
+
+    @Autowired
+    private ResponseRepository responseRepository;
+
+    @Autowired
+    private EntityCacheInvalidationService entityCacheInvalidationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private Long companyId;
+    private Long vacancyId;
+
+    @BeforeEach
+    void setUp() {
+        responseRepository.deleteAll();
+        vacancyRepository.deleteAll();
+        companyRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+
+        Company company = new Company("company", "inn", "kpp", "ogrn", "address", "director", new Date(), true);
+        company.setUserName("owner");
+        companyRepository.save(company);
+        List<Vacancy> vacancies = new ArrayList<>();
+        for (int i = 0; i < VACANCIES; i++) {
+            Vacancy vacancy = new Vacancy();
+            vacancy.setName("vacancy " + i);
+            vacancy.setTitle("title");
+            vacancy.setContact("contact");
+            vacancy.setCompany(company);
+            vacancies.add(vacancy);
+        }
+        vacancyRepository.saveAll(vacancies);
+        Response response = new Response();
+        response.setUserName("applicant");
+        response.setVacancy(vacancies.get(0));
+        responseRepository.save(response);
+        companyId = company.getCompany_id();
+        vacancyId = vacancies.get(0).getVacancy_id();
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedVacancyReadIsServedFromCache() throws Exception {
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L)
+                .andExpect(jsonPath("$.name").value("vacancy 0"));
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+
+        statistics.clear();
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L)
+                .andExpect(jsonPath("$.name").value("vacancy 0"))
+                .andExpect(jsonPath("$.company.name").value("company"));
+        // в базу идёт только запрос версии для ETag, сама вакансия - из кэша
+        assertEquals(1, statistics.getPrepareStatementCount(), statistics::toString);
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        double hits = meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("region", Vacancy.class.getName())
+                .tag("result", "hit")
+                .functionCounter().count();
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    void repeatedCatalogueReadsAreServedFromQueryCache() throws Exception {
+        readCatalogue();
+        statistics.clear();
+        readCatalogue();
+        assertEquals(0, statistics.getPrepareStatementCount(), statistics::toString);
+    }
+
+    @Test
+    void localWriteIsVisibleAndSentToOtherReplicas() throws Exception {
+        readCatalogue();
+        performAsync(put("/api/comp-vac/vacancy/" + vacancyId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"renamed\",\"title\":\"title\",\"contact\":\"contact\"}"), "owner", 3L);
+
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L)
+                .andExpect(jsonPath("$.name").value("renamed"));
+        performAsync(get("/api/comp-vac/company/" + companyId + "/vacancy"), "applicant", 2L)
+                .andExpect(jsonPath("$.items[?(@.vacancy_id == " + vacancyId + ")].name").value("renamed"));
+        verify(kafkaProducerService).sendEntityCacheEvictEvent(argThat(event ->
+                event.getEntity().equals(Vacancy.class.getName()) && vacancyId.equals(event.getId())));
+    }
+
+    @Test
+    void deletedVacancyEvictsResponses() throws Exception {
+        Long responseId = responseRepository.findAll().get(0).getResponse_id();
+        assertEquals(vacancyId, responseRepository.findById(responseId).orElseThrow().getVacancy().getVacancy_id());
+
+        performAsync(delete("/api/comp-vac/vacancy/" + vacancyId), "owner", 3L);
+
+        // vacancy_id обнулила база, кэш откликов должен это увидеть
+        assertEquals(null, responseRepository.findById(responseId).orElseThrow().getVacancy());
+    }
+
+    @Test
+    void eventFromOtherReplicaEvictsEntityAndQueries() throws Exception {
+        readCatalogue();
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L);
+        // запись другой реплики: в базе уже новое значение, локальный кэш о нём не знает
+        jdbcTemplate.update("UPDATE vacancy SET name = 'changed elsewhere' WHERE vacancy_id = ?", vacancyId);
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L)
+                .andExpect(jsonPath("$.name").value("vacancy 0"));
+
+        entityCacheInvalidationService.onEntityChanged("{\"origin\":\"other-replica\",\"entity\":\""
+                + Vacancy.class.getName() + "\",\"id\":" + vacancyId + "}");
+
+        performAsync(get("/api/comp-vac/vacancy/" + vacancyId), "applicant", 2L)
+                .andExpect(jsonPath("$.name").value("changed elsewhere"));
+        performAsync(get("/api/comp-vac/vacancy").param("size", "50"), "applicant", 2L)
+                .andExpect(jsonPath("$.items[?(@.vacancy_id == " + vacancyId + ")].name").value("changed elsewhere"));
+    }
+
+    private void readCatalogue() throws Exception {
+        performAsync(get("/api/comp-vac/vacancy").param("size", "50"), "applicant", 2L)
+                .andExpect(jsonPath("$.items", hasSize(VACANCIES)));
+        performAsync(get("/api/comp-vac/company"), "admin", 1L)
+                .andExpect(jsonPath("$", hasSize(1)));
+        performAsync(get("/api/comp-vac/company/" + companyId + "/vacancy"), "applicant", 2L)
+                .andExpect(jsonPath("$.items", hasSize(VACANCIES)));
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder, String username, Long roleId)
+            throws Exception {
+        String token = jwtUtil.generateToken(username, roleId);
+        MvcResult started = mockMvc.perform(requestBuilder.header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+    }
+}
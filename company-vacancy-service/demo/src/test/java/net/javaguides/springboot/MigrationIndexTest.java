@@ -0,0 +1,102 @@
+package net.javaguides.springboot;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Миграции на чистой базе + планы запросов репозиториев: каждый горячий запрос должен идти по своему индексу.
+// SQL повторяет то, что генерирует Hibernate для соответствующих методов.
+@Testcontainers
+public class MigrationIndexTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            // 2 000 компаний, по 10 вакансий (каждая пятая закрыта), по 20 откликов на пользователя
+            statement.execute("INSERT INTO company (company_id, address, date_reg, director, inn, is_accepted, kpp, " +
+                    "name, ogrn, user_name) SELECT i, 'address', now(), 'director', 'inn', true, 'kpp', " +
+                    "'company ' || i, 'ogrn', 'user' || i FROM generate_series(1, 2000) i");
+            statement.execute("INSERT INTO vacancy (vacancy_id, contact, date, is_hidden, name, title, company_id) " +
+                    "SELECT i, 'contact', now() - i * interval '1 minute', i % 5 <> 0, 'vacancy ' || i, 'title', " +
+                    "i % 2000 + 1 FROM generate_series(1, 20000) i");
+            statement.execute("INSERT INTO response (response_id, date, is_viewed, user_name, vacancy_id) " +
+                    "SELECT i, now() - i * interval '1 second', i % 10 <> 0, 'applicant' || i % 10000, " +
+                    "i % 20000 + 1 FROM generate_series(1, 200000) i");
+            statement.execute("VACUUM ANALYZE");
+        }
+    }
+
+    @Test
+    void feedUsesPartialIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM vacancy v WHERE v.is_hidden = true " +
+                "ORDER BY v.date DESC, v.vacancy_id DESC LIMIT 20", "idx_vacancy_feed");
+        assertUsesIndex("SELECT * FROM vacancy v WHERE v.is_hidden = true " +
+                "AND (v.date < now() - interval '1 day' OR (v.date = now() - interval '1 day' AND v.vacancy_id < 1440)) " +
+                "ORDER BY v.date DESC, v.vacancy_id DESC LIMIT 20", "idx_vacancy_feed");
+    }
+
+    @Test
+    void companyLookupsUseIndexes() throws SQLException {
+        assertUsesIndex("SELECT * FROM company c WHERE c.user_name = 'user42'", "idx_company_user");
+        assertUsesIndex("SELECT v.* FROM vacancy v JOIN company c ON c.company_id = v.company_id " +
+                "WHERE c.user_name = 'user42'", "idx_vacancy_company");
+        assertUsesIndex("SELECT * FROM vacancy v WHERE v.company_id = 42 AND v.is_hidden = true " +
+                "ORDER BY v.date DESC, v.vacancy_id DESC LIMIT 6", "idx_vacancy_company_feed");
+        assertUsesIndex("SELECT count(v.vacancy_id) FROM vacancy v WHERE v.company_id = 42 AND v.is_hidden = true",
+                "idx_vacancy_company_feed");
+        // версия карточки компании для ETag (CompanyRepository.findCardVersion)
+        assertUsesIndex("SELECT c.company_id, c.updated_at, max(v.date), count(v.vacancy_id) FROM company c " +
+                "LEFT JOIN vacancy v ON v.company_id = c.company_id AND v.is_hidden = true " +
+                "WHERE c.company_id = 42 GROUP BY c.company_id, c.updated_at", "idx_vacancy_company_feed");
+    }
+
+    @Test
+    void responseLookupsUseIndexes() throws SQLException {
+        assertUsesIndex("SELECT * FROM response r WHERE r.vacancy_id = 42", "idx_response_vacancy");
+        assertUsesIndex("SELECT r.response_id, r.date, v.vacancy_id, v.name, v.title, c.name FROM response r " +
+                "LEFT JOIN vacancy v ON v.vacancy_id = r.vacancy_id LEFT JOIN company c ON c.company_id = v.company_id " +
+                "WHERE r.user_name = 'applicant42' ORDER BY r.date DESC, r.response_id DESC LIMIT 20",
+                "idx_response_user");
+        assertUsesIndex("SELECT count(r.response_id) FROM response r WHERE r.user_name = 'applicant42'",
+                "idx_response_user");
+        assertUsesIndex("UPDATE response SET is_viewed = true WHERE user_name = 'applicant42' AND is_viewed = false",
+                "idx_response_user_unviewed");
+    }
+
+    private static void assertUsesIndex(String sql, String index) throws SQLException {
+        String plan = explain(sql);
+        assertTrue(plan.contains("\"Index Name\": \"" + index + "\""), () -> index + " not used:\n" + plan);
+    }
+
+    private static String explain(String sql) throws SQLException {
+        // без ANALYZE запрос не выполняется, так что UPDATE ничего не меняет
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
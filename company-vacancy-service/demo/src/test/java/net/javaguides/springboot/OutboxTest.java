@@ -0,0 +1,219 @@
+package net.javaguides.springboot;
+
+import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.OutboxEvent;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.CompanyRepository;
+import net.javaguides.springboot.repository.OutboxEventRepository;
+import net.javaguides.springboot.repository.ResponseRepository;
+import net.javaguides.springboot.repository.VacancyRepository;
+import net.javaguides.springboot.service.OutboxService;
+import net.javaguides.springboot.service.VacancySearchService;
+import net.javaguides.springboot.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Уведомление об отклике пишется в outbox вместе с откликом и уходит в Kafka только через релей;
+// реплики не отправляют одну и ту же строку дважды.
+@AutoConfigureMockMvc
+@SpringBootTest
+@Testcontainers
+public class OutboxTest {
+
+    private static final String TOPIC_RESPONSE = "response-notifications";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("catalogue-cache.enabled", () -> "false");
+        // релей вызывается из теста
+        registry.add("outbox.relay.enabled", () -> "false");
+    }
+
+    @MockitoBean
+    private VacancySearchService vacancySearchService;
+
+    @MockitoBean
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private VacancyRepository vacancyRepository;
+
+    @Autowired
+    private ResponseRepository responseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long vacancyId;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        responseRepository.deleteAll();
+        vacancyRepository.deleteAll();
+        companyRepository.deleteAll();
+
+        Company company = new Company("company", "inn", "kpp", "ogrn", "address", "director", new Date(), true);
+        company.setUserName("owner@mail.ru");
+        companyRepository.save(company);
+        Vacancy vacancy = new Vacancy();
+        vacancy.setName("java developer");
+        vacancy.setTitle("title");
+        vacancy.setContact("contact");
+        vacancy.setCompany(company);
+        vacancyId = vacancyRepository.save(vacancy).getVacancy_id();
+
+        when(kafkaTemplate.send(anyString(), any(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void eventIsWrittenWithResponseAndSentByRelay() throws Exception {
+        respond(vacancyId).andExpect(status().isOk());
+
+        assertEquals(1, responseRepository.count());
+        List<OutboxEvent> events = outboxEventRepository.findAll();
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getPayload().contains("java developer"));
+        verify(kafkaTemplate, never()).send(eq(TOPIC_RESPONSE), any(), anyString());
+
+        assertEquals(1, outboxService.relayBatch());
+        verify(kafkaTemplate).send(TOPIC_RESPONSE, vacancyId.toString(), events.get(0).getPayload());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void noEventWithoutResponse() throws Exception {
+        respond(vacancyId + 1000).andExpect(status().isNotFound());
+
+        assertEquals(0, responseRepository.count());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void failedSendStaysInOutbox() {
+        outboxService.add(TOPIC_RESPONSE, null, "{}");
+        when(kafkaTemplate.send(anyString(), any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertEquals(0, outboxService.relayBatch());
+        assertEquals(1, outboxEventRepository.count());
+    }
+
+    @Test
+    void eventsAreSentInWriteOrderNotIdOrder() {
+        for (int i = 0; i < 3; i++) {
+            outboxService.add(TOPIC_RESPONSE, "42", "{\"n\":" + i + "}");
+        }
+        // событие с самым большим id записано первым (id из блока другого экземпляра последовательности)
+        jdbcTemplate.update("UPDATE outbox_event SET created_at = created_at - interval '1 hour' WHERE payload = ?",
+                "{\"n\":2}");
+
+        assertEquals(3, outboxService.relayBatch());
+
+        InOrder inOrder = inOrder(kafkaTemplate);
+        inOrder.verify(kafkaTemplate).send(TOPIC_RESPONSE, "42", "{\"n\":2}");
+        inOrder.verify(kafkaTemplate).send(TOPIC_RESPONSE, "42", "{\"n\":0}");
+        inOrder.verify(kafkaTemplate).send(TOPIC_RESPONSE, "42", "{\"n\":1}");
+    }
+
+    @Test
+    void onlyOneReplicaRelaysAtATime() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            outboxService.add(TOPIC_RESPONSE, "42", "{\"n\":" + i + "}");
+        }
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // "другая реплика" отправляет пачку в своей транзакции
+        Thread otherReplica = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(outboxEventRepository.tryLockRelay());
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            status.setRollbackOnly();
+        }));
+        otherReplica.start();
+        locked.await();
+
+        assertEquals(0, outboxService.relayBatch());
+        verify(kafkaTemplate, never()).send(anyString(), any(), anyString());
+        release.countDown();
+        otherReplica.join();
+
+        assertEquals(3, outboxService.relayBatch());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    private ResultActions respond(Long id) throws Exception {
+        String token = jwtUtil.generateToken("applicant@mail.ru", 2L);
+        MvcResult started = mockMvc.perform(post("/api/comp-vac/vacancy/" + id + "/response")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,344 @@
+package net.javaguides.springboot;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import net.javaguides.springboot.model.Company;
+import net.javaguides.springboot.model.Response;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.CompanyRepository;
+import net.javaguides.springboot.repository.ResponseRepository;
+import net.javaguides.springboot.repository.VacancyRepository;
+import net.javaguides.springboot.service.KafkaProducerService;
+import net.javaguides.springboot.service.VacancySearchService;
+import net.javaguides.springboot.util.JwtUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Число SQL-запросов на эндпоинты не должно зависеть от числа строк (нет N+1),
+// изменение компании не должно загружать её вакансии, а ответ 304 - это только запрос версии.
+@AutoConfigureMockMvc
+@SpringBootTest
+@Testcontainers
+public class ReadEndpointQueryCountTest {
+
+    private static final int COMPANIES = 5;
+    private static final int VACANCIES_PER_COMPANY = 4;
+    private static final int RESPONSES_PER_VACANCY = 3;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+        // считаются обращения к базе, второй запрос из кэша исказил бы счётчик (кэш проверяет EntityCacheTest)
+        registry.add("catalogue-cache.enabled", () -> "false");
+        // опрос outbox по расписанию сбивал бы счётчик запросов
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.cache.use_second_level_cache", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.cache.use_query_cache", () -> "false");
+    }
+
+    // поиск и Kafka не нужны, а перестроение индекса при старте сбивало бы счётчик
+    @MockitoBean
+    private VacancySearchService vacancySearchService;
+
+    @MockitoBean
+    private KafkaProducerService kafkaProducerService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private VacancyRepository vacancyRepository;
+
+    @Autowired
+    private ResponseRepository responseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private Long firstCompanyId;
+    private Long firstVacancyId;
+
+    @BeforeEach
+    void setUp() {
+        responseRepository.deleteAll();
+        vacancyRepository.deleteAll();
+        companyRepository.deleteAll();
+
+        List<Vacancy> vacancies = new ArrayList<>();
+        for (int i = 0; i < COMPANIES; i++) {
+            Company company = new Company("company " + i, "inn", "kpp", "ogrn", "address", "director", new Date(), false);
+            company.setUserName("owner" + i);
+            companyRepository.save(company);
+            for (int j = 0; j < VACANCIES_PER_COMPANY; j++) {
+                Vacancy vacancy = new Vacancy();
+                vacancy.setName("vacancy " + i + "-" + j);
+                vacancy.setTitle("title");
+                vacancy.setContact("contact");
+                vacancy.setCompany(company);
+                vacancies.add(vacancy);
+            }
+        }
+        vacancyRepository.saveAll(vacancies);
+
+        List<Response> responses = new ArrayList<>();
+        for (Vacancy vacancy : vacancies) {
+            for (int k = 0; k < RESPONSES_PER_VACANCY; k++) {
+                Response response = new Response();
+                response.setUserName("applicant" + k);
+                response.setVacancy(vacancy);
+                responses.add(response);
+            }
+        }
+        responseRepository.saveAll(responses);
+        firstCompanyId = vacancies.get(0).getCompany().getCompany_id();
+        firstVacancyId = vacancies.get(0).getVacancy_id();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void vacancyFeedIsOneQuery() throws Exception {
+        performAsync(get("/api/comp-vac/vacancy").param("size", "50"), "applicant0", 2L)
+                .andExpect(jsonPath("$.items", hasSize(COMPANIES * VACANCIES_PER_COMPANY)))
+                .andExpect(jsonPath("$.items[0].company.name").exists());
+        assertStatements(1);
+    }
+
+    @Test
+    void myVacanciesIsOneQuery() throws Exception {
+        performAsync(get("/api/comp-vac/my-vacancy"), "owner0", 3L)
+                .andExpect(jsonPath("$", hasSize(VACANCIES_PER_COMPANY)));
+        assertStatements(1);
+    }
+
+    @Test
+    void adminVacanciesIsOneQuery() throws Exception {
+        performAsync(get("/api/comp-vac/admin/vacancy"), "admin", 1L)
+                .andExpect(jsonPath("$", hasSize(COMPANIES * VACANCIES_PER_COMPANY)));
+        assertStatements(1);
+    }
+
+    @Test
+    void vacancyExportIsOneStreamedQuery() throws Exception {
+        String body = performAsync(get("/api/comp-vac/admin/export/vacancies"), "admin", 1L)
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(COMPANIES * VACANCIES_PER_COMPANY, lines.length);
+        assertTrue(lines[0].startsWith("{\"vacancy_id\":" + firstVacancyId + ","), lines[0]);
+        assertTrue(body.endsWith("\n"));
+        assertStatements(1);
+    }
+
+    @Test
+    void responseCsvExportIsOneStreamedQuery() throws Exception {
+        String body = performAsync(get("/api/comp-vac/admin/export/responses").param("format", "csv"), "admin", 1L)
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"responses.csv\""))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals("response_id,date,userName,viewed,vacancy_id,vacancyName,company_id,companyName", lines[0]);
+        assertEquals(1 + COMPANIES * VACANCIES_PER_COMPANY * RESPONSES_PER_VACANCY, lines.length);
+        assertStatements(1);
+    }
+
+    @Test
+    void userResponsesAreUpdatePageAndCount() throws Exception {
+        performAsync(get("/api/comp-vac/responses").param("size", "5"), "applicant0", 2L)
+                .andExpect(jsonPath("$.items", hasSize(5)))
+                .andExpect(jsonPath("$.total").value(COMPANIES * VACANCIES_PER_COMPANY));
+        assertStatements(3);
+    }
+
+    @Test
+    void vacancyResponsesAreOwnerCheckAndList() throws Exception {
+        performAsync(get("/api/comp-vac/responses/" + firstVacancyId), "owner0", 3L)
+                .andExpect(jsonPath("$", hasSize(RESPONSES_PER_VACANCY)));
+        assertStatements(2);
+    }
+
+    @Test
+    void companyCardIsCompanyPreviewAndCount() throws Exception {
+        performAsync(get("/api/comp-vac/company/" + firstCompanyId), "applicant0", 2L)
+                .andExpect(jsonPath("$.vacancies", hasSize(VACANCIES_PER_COMPANY)))
+                .andExpect(jsonPath("$.vacanciesCount").value(VACANCIES_PER_COMPANY));
+        assertStatements(4); // версия для ETag + компания + превью + число
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    void unchangedVacancyIsVersionQueryOnly() throws Exception {
+        String etag = performAsync(get("/api/comp-vac/vacancy/" + firstVacancyId), "applicant0", 2L)
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        statistics.clear();
+        dispatchAsync(get("/api/comp-vac/vacancy/" + firstVacancyId).header(HttpHeaders.IF_NONE_MATCH, etag),
+                "applicant0", 2L)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertStatements(1);
+    }
+
+    @Test
+    void changedVacancyGetsNewEtag() throws Exception {
+        String etag = performAsync(get("/api/comp-vac/vacancy/" + firstVacancyId), "applicant0", 2L)
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        performAsync(put("/api/comp-vac/vacancy/" + firstVacancyId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"renamed\",\"title\":\"title\",\"contact\":\"contact\"}"), "owner0", 3L);
+
+        String changed = performAsync(get("/api/comp-vac/vacancy/" + firstVacancyId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag), "applicant0", 2L)
+                .andExpect(jsonPath("$.name").value("renamed"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void unchangedCompanyCardIsVersionQueryOnly() throws Exception {
+        MvcResult card = performAsync(get("/api/comp-vac/company/" + firstCompanyId), "applicant0", 2L).andReturn();
+        String etag = card.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = card.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        statistics.clear();
+        dispatchAsync(get("/api/comp-vac/company/" + firstCompanyId).header(HttpHeaders.IF_NONE_MATCH, etag),
+                "applicant0", 2L)
+                .andExpect(status().isNotModified());
+        assertStatements(1);
+
+        dispatchAsync(get("/api/comp-vac/company/" + firstCompanyId).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified),
+                "applicant0", 2L)
+                .andExpect(status().isNotModified());
+
+        // подтверждение меняет компанию - карточка отдаётся заново
+        performAsync(put("/api/comp-vac/company-accept/" + firstCompanyId), "admin", 1L);
+        performAsync(get("/api/comp-vac/company/" + firstCompanyId).header(HttpHeaders.IF_NONE_MATCH, etag),
+                "applicant0", 2L)
+                .andExpect(jsonPath("$.is_accepted").value(true))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void companyVacanciesAreExistsCheckAndPage() throws Exception {
+        performAsync(get("/api/comp-vac/company/" + firstCompanyId + "/vacancy").param("size", "3"), "applicant0", 2L)
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.nextCursor").exists());
+        assertStatements(2);
+    }
+
+    @Test
+    void feedCursorKeepsSubMillisecondOrder() throws Exception {
+        // все вакансии в пределах одной миллисекунды, порядок задают микросекунды
+        jdbcTemplate.update("UPDATE vacancy SET date = timestamp '2026-01-01 12:00:00' " +
+                "+ (vacancy_id * 37 % 997) * interval '1 microsecond'");
+
+        Set<Integer> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder page = get("/api/comp-vac/vacancy").param("size", "3");
+            if (cursor != null) {
+                page.param("cursor", cursor);
+            }
+            String body = performAsync(page, "applicant0", 2L).andReturn().getResponse().getContentAsString();
+            List<Integer> ids = JsonPath.read(body, "$.items[*].vacancy_id");
+            for (Integer id : ids) {
+                assertTrue(seen.add(id), "vacancy " + id + " repeated");
+            }
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+        assertEquals(COMPANIES * VACANCIES_PER_COMPANY, seen.size());
+    }
+
+    @Test
+    void companyUpdatesDoNotLoadVacancies() throws Exception {
+        performAsync(put("/api/comp-vac/company-accept/" + firstCompanyId), "admin", 1L);
+        assertStatements(2); // SELECT company + UPDATE company
+        assertEquals(0, statistics.getCollectionLoadCount());
+
+        statistics.clear();
+        performAsync(put("/api/comp-vac/company/" + firstCompanyId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"renamed\",\"inn\":\"inn\",\"kpp\":\"kpp\",\"ogrn\":\"ogrn\"," +
+                        "\"address\":\"address\",\"director\":\"director\",\"date_reg\":\"2024-01-01T00:00:00.000+00:00\"," +
+                        "\"is_accepted\":true}"), "admin", 1L)
+                .andExpect(jsonPath("$.name").value("renamed"))
+                .andExpect(jsonPath("$.userName").value("owner0"));
+        assertStatements(2);
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(COMPANIES * VACANCIES_PER_COMPANY, vacancyRepository.count());
+    }
+
+    private void assertStatements(long expected) {
+        assertEquals(expected, statistics.getPrepareStatementCount(), statistics::toString);
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder, String username, Long roleId)
+            throws Exception {
+        return dispatchAsync(requestBuilder, username, roleId).andExpect(status().isOk());
+    }
+
+    private ResultActions dispatchAsync(MockHttpServletRequestBuilder requestBuilder, String username, Long roleId)
+            throws Exception {
+        String token = jwtUtil.generateToken(username, roleId);
+        MvcResult started = mockMvc.perform(requestBuilder.header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,61 @@
+package net.javaguides.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.javaguides.springboot.service.TokenRevocationService;
+import net.javaguides.springboot.util.TokenDigest;
+import net.javaguides.springboot.util.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenRevocationServiceTest {
+
+    private VerifiedTokenCache verifiedTokenCache;
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        verifiedTokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(10), meterRegistry);
+        revocationService = new TokenRevocationService(verifiedTokenCache, new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    void revokesTokenAndDropsItFromVerifiedCache() {
+        long expiresAt = System.currentTimeMillis() + Duration.ofDays(1).toMillis();
+        verifiedTokenCache.put("token", claims(expiresAt));
+
+        revocationService.onTokenRevoked(event("token", expiresAt));
+
+        assertTrue(revocationService.isRevoked("token"));
+        assertFalse(revocationService.isRevoked("other-token"));
+        assertNull(verifiedTokenCache.get("token"));
+    }
+
+    @Test
+    void ignoresAlreadyExpiredTokens() {
+        revocationService.onTokenRevoked(event("token", System.currentTimeMillis() - 1000));
+
+        assertFalse(revocationService.isRevoked("token"));
+    }
+
+    private static String event(String token, long expiresAt) {
+        return "{\"digest\":\"" + TokenDigest.of(token) + "\",\"expiresAt\":" + expiresAt + "}";
+    }
+
+    private static Claims claims(long expiresAt) {
+        Claims claims = Jwts.claims().setSubject("user@example.com");
+        claims.put("role_id", 1L);
+        claims.setExpiration(new Date(expiresAt));
+        return claims;
+    }
+}
@@ -0,0 +1,37 @@
+package net.javaguides.springboot;
+
+import net.javaguides.springboot.util.VacancyCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VacancyCursorTest {
+
+    @Test
+    void keepsMicroseconds() {
+        Timestamp date = Timestamp.from(Instant.parse("2026-01-01T12:00:00.000123Z"));
+
+        VacancyCursor decoded = VacancyCursor.decode(new VacancyCursor(date, 42L).encode());
+
+        assertEquals(date.toInstant(), decoded.getDate().toInstant());
+        assertEquals(42L, decoded.getVacancyId());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> VacancyCursor.decode(encode("1767268800000:42")));
+        assertThrows(IllegalArgumentException.class, () -> VacancyCursor.decode(encode("1767268800:1000000000:42")));
+        assertThrows(IllegalArgumentException.class, () -> VacancyCursor.decode(encode("1767268800:x:42")));
+        assertThrows(IllegalArgumentException.class, () -> VacancyCursor.decode("not base64!"));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,171 @@
+package net.javaguides.springboot;
+
+import net.javaguides.springboot.dto.VacancyItemDto;
+import net.javaguides.springboot.dto.VacancySearchResultDto;
+import net.javaguides.springboot.model.Vacancy;
+import net.javaguides.springboot.repository.VacancyRepository;
+import net.javaguides.springboot.service.VacancySearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VacancySearchServiceTest {
+
+    @TempDir
+    Path indexDir;
+
+    private final Map<Long, Vacancy> db = new HashMap<>();
+    private VacancyRepository repository;
+    private VacancySearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = mock(VacancyRepository.class);
+        when(repository.findOpenItemsByIds(anyCollection())).thenAnswer(invocation -> {
+            List<VacancyItemDto> found = new ArrayList<>();
+            for (Object id : (Collection<?>) invocation.getArgument(0)) {
+                Vacancy vacancy = db.get(id);
+                if (vacancy != null && vacancy.getIsHidden()) {
+                    found.add(item(vacancy));
+                }
+            }
+            return found;
+        });
+        when(repository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(db.get(invocation.getArgument(0))));
+
+        searchService = new VacancySearchService(repository);
+        ReflectionTestUtils.setField(searchService, "indexDir", indexDir.toString());
+        ReflectionTestUtils.setField(searchService, "maxWindow", 1000);
+        ReflectionTestUtils.setField(searchService, "defaultSize", 20);
+        ReflectionTestUtils.setField(searchService, "maxSize", 100);
+        ReflectionTestUtils.setField(searchService, "rebuildBatchSize", 100);
+        searchService.open();
+
+        save(vacancy(1L, "Java-разработчик", "Разработка микросервисов", "Удалённо", "Полный день", true));
+        save(vacancy(2L, "Бухгалтер", "Ведение отчётности разработчиков", "Офис", "Полный день", false));
+        save(vacancy(3L, "Тестировщик", "Ручное тестирование", "Удалённо", "Гибкий график", true));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchService.close();
+    }
+
+    @Test
+    void matchesWordFormsAndRanksNameAboveDescription() {
+        VacancySearchResultDto result = searchService.search("разработчики", null, null, null, null, null);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(1L, result.getItems().get(0).getVacancy_id());
+        assertEquals(2L, result.getItems().get(1).getVacancy_id());
+    }
+
+    @Test
+    void appliesExactFilters() {
+        VacancySearchResultDto remote = searchService.search(null, "удалённо", null, true, null, null);
+        assertEquals(2, remote.getTotal());
+
+        VacancySearchResultDto flexible = searchService.search(null, "Удалённо", "Гибкий график", null, null, null);
+        assertEquals(1, flexible.getItems().size());
+        assertEquals(3L, flexible.getItems().get(0).getVacancy_id());
+    }
+
+    @Test
+    void removesDeletedAndHiddenVacancies() {
+        searchService.remove(1L);
+        db.remove(1L);
+
+        Vacancy hidden = db.get(3L);
+        hidden.setIsHidden(false);
+        searchService.index(hidden);
+
+        VacancySearchResultDto result = searchService.search(null, null, null, null, null, null);
+        assertEquals(1, result.getTotal());
+        assertEquals(2L, result.getItems().get(0).getVacancy_id());
+    }
+
+    @Test
+    void dropsHitsMissingFromDatabase() {
+        db.remove(3L);
+
+        VacancySearchResultDto result = searchService.search("тестирование", null, null, null, null, null);
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(0, result.getTotal());
+    }
+
+    @Test
+    void appliesChangesMadeDuringRebuildAfterSnapshot() {
+        // снимок прочитан до удаления 1 и правки 3, а события о них пришли, пока он индексировался
+        Vacancy staleFirst = db.get(1L);
+        Vacancy staleThird = vacancy(3L, "Тестировщик", "Ручное тестирование", "Удалённо", "Гибкий график", true);
+        when(repository.findOpenAfterId(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            db.remove(1L);
+            searchService.remove(1L);
+            Vacancy renamed = vacancy(3L, "Аналитик", "Сбор требований", "Офис", "Гибкий график", true);
+            db.put(3L, renamed);
+            searchService.index(renamed);
+            return List.of(staleFirst, db.get(2L), staleThird);
+        });
+
+        searchService.rebuildIndex();
+
+        assertEquals(0, searchService.search("микросервисы", null, null, null, null, null).getTotal());
+        assertEquals(0, searchService.search("тестирование", null, null, null, null, null).getTotal());
+        VacancySearchResultDto renamed = searchService.search("аналитик", null, null, null, null, null);
+        assertEquals(1, renamed.getTotal());
+        assertEquals(3L, renamed.getItems().get(0).getVacancy_id());
+    }
+
+    @Test
+    void rejectsTooDeepPages() {
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.search("разработчик", null, null, null, 50, 100));
+    }
+
+    private void save(Vacancy vacancy) {
+        db.put(vacancy.getVacancy_id(), vacancy);
+        searchService.index(vacancy);
+    }
+
+    private static VacancyItemDto item(Vacancy vacancy) {
+        return new VacancyItemDto(vacancy.getVacancy_id(), vacancy.getName(), vacancy.getTitle(),
+                vacancy.getDescription(), vacancy.getContact(), vacancy.getExperience(), vacancy.getFormat(),
+                vacancy.getAddress(), vacancy.getSchedule(), vacancy.getHours(), vacancy.getIs_educated(),
+                vacancy.getDate(), null, null, null);
+    }
+
+    private static Vacancy vacancy(Long id, String name, String description, String format, String schedule,
+                                   boolean educated) {
+        Vacancy vacancy = new Vacancy();
+        vacancy.setVacancy_id(id);
+        vacancy.setName(name);
+        vacancy.setTitle(name);
+        vacancy.setDescription(description);
+        vacancy.setFormat(format);
+        vacancy.setSchedule(schedule);
+        vacancy.setIs_educated(educated);
+        vacancy.setIsHidden(true);
+        return vacancy;
+    }
+}
@@ -0,0 +1,153 @@
+package net.javaguides.springboot.benchmark;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+// Вставка 100k откликов тремя способами - теми же SQL, что выполняет Hibernate:
+//   identity       - GenerationType.IDENTITY: INSERT ... RETURNING на каждую строку, батчинг невозможен;
+//   sequence       - pooled-последовательность без батчинга (hibernate.jdbc.batch_size не задан);
+//   sequence+batch - pooled-последовательность, батчи по 50, reWriteBatchedInserts=true.
+//
+// Нужен Docker (поднимается PostgreSQL через Testcontainers) либо своя БД:
+//   -Dbench.jdbc-url=jdbc:postgresql://localhost:5432/bench -Dbench.user=postgres -Dbench.password=...
+// Запуск: mvn -B test-compile, затем
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       net.javaguides.springboot.benchmark.ResponseInsertBenchmark [число строк]
+public class ResponseInsertBenchmark {
+
+    private static final int BATCH_SIZE = 50; // = allocationSize последовательности
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String url = System.getProperty("bench.jdbc-url");
+        if (url != null) {
+            run(url, System.getProperty("bench.user", "postgres"), System.getProperty("bench.password", ""), rows);
+            return;
+        }
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")) {
+            postgres.start();
+            run(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), rows);
+        }
+    }
+
+    private static void run(String url, String user, String password, int rows) throws SQLException {
+        try (Connection plain = DriverManager.getConnection(url, user, password);
+             Connection rewritten = DriverManager.getConnection(url + (url.contains("?") ? "&" : "?")
+                     + "reWriteBatchedInserts=true", user, password)) {
+            // прогрев JIT и кэшей БД, результат не печатаем
+            measure("warmup", plain, rows / 10, ResponseInsertBenchmark::insertIdentity);
+            measure("warmup", rewritten, rows / 10, ResponseInsertBenchmark::insertSequenceBatched);
+
+            measure("identity", plain, rows, ResponseInsertBenchmark::insertIdentity);
+            measure("sequence", plain, rows, ResponseInsertBenchmark::insertSequence);
+            measure("sequence+batch", rewritten, rows, ResponseInsertBenchmark::insertSequenceBatched);
+        }
+    }
+
+    private interface Inserter {
+        void insert(Connection connection, int rows) throws SQLException;
+    }
+
+    private static void measure(String name, Connection connection, int rows, Inserter inserter) throws SQLException {
+        recreateSchema(connection);
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        inserter.insert(connection, rows);
+        connection.commit();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        connection.setAutoCommit(true);
+        if (!"warmup".equals(name)) {
+            System.out.printf("%-15s %,d rows: %,d ms (%,.0f rows/s)%n", name, rows, elapsedMs,
+                    rows * 1000.0 / Math.max(1, elapsedMs));
+        }
+    }
+
+    private static void recreateSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS response");
+            statement.execute("DROP SEQUENCE IF EXISTS response_seq");
+            statement.execute("CREATE TABLE response (response_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "date TIMESTAMP(6) NOT NULL, user_name VARCHAR(255) NOT NULL, vacancy_id BIGINT, " +
+                    "is_viewed BOOLEAN NOT NULL)");
+            statement.execute("CREATE SEQUENCE response_seq START WITH 1 INCREMENT BY " + BATCH_SIZE);
+        }
+    }
+
+    private static void insertIdentity(Connection connection, int rows) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO response (date, user_name, vacancy_id, is_viewed) VALUES (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                bind(insert, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+    }
+
+    private static void insertSequence(Connection connection, int rows) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO response (date, user_name, vacancy_id, is_viewed, response_id) VALUES (?, ?, ?, ?, ?)")) {
+            IdPool ids = new IdPool(connection);
+            for (int i = 0; i < rows; i++) {
+                bind(insert, i);
+                insert.setLong(5, ids.next());
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private static void insertSequenceBatched(Connection connection, int rows) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO response (date, user_name, vacancy_id, is_viewed, response_id) VALUES (?, ?, ?, ?, ?)")) {
+            IdPool ids = new IdPool(connection);
+            for (int i = 0; i < rows; i++) {
+                bind(insert, i);
+                insert.setLong(5, ids.next());
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void bind(PreparedStatement insert, int i) throws SQLException {
+        insert.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+        insert.setString(2, "user" + (i % 1000) + "@example.com");
+        insert.setNull(3, java.sql.Types.BIGINT);
+        insert.setBoolean(4, false);
+    }
+
+    // как pooled-оптимизатор Hibernate: один nextval на BATCH_SIZE идентификаторов
+    private static class IdPool {
+        private final PreparedStatement nextval;
+        private long next;
+        private long hi;
+
+        IdPool(Connection connection) throws SQLException {
+            this.nextval = connection.prepareStatement("SELECT nextval('response_seq')");
+        }
+
+        long next() throws SQLException {
+            if (next >= hi) {
+                try (ResultSet rs = nextval.executeQuery()) {
+                    rs.next();
+                    hi = rs.getLong(1) + BATCH_SIZE;
+                    next = hi - BATCH_SIZE;
+                }
+            }
+            return next++;
+        }
+    }
+}
@@ -42,6 +42,7 @@ type Vacancy = {
 export default function HomePage() {
     const router = useRouter()
     const [vacancies, setVacancies] = useState<Vacancy[]>([])
+    const [nextCursor, setNextCursor] = useState<string | null>(null)
     const [loading, setLoading] = useState(true)
     const [page, setPage] = useState(1)
     const [searchQuery, setSearchQuery] = useState('')
@@ -58,11 +59,13 @@ export default function HomePage() {
             try {
                 const token = localStorage.getItem('token')
                 const response = await axios.get('http://localhost/api/comp-vac/vacancy', {
+                    params: { size: 100 },
                     headers: {
                         Authorization: `Bearer ${token}`
                     }
                 })
-                setVacancies(response.data)
+                setVacancies(response.data.items)
+                setNextCursor(response.data.nextCursor)
             } catch (error) {
                 console.error('Ошибка загрузки вакансий:', error)
                 if (axios.isAxiosError(error) && error.response?.status === 401) {
@@ -76,6 +79,23 @@ export default function HomePage() {
         void fetchData()
     }, [router])
 
+    const loadMore = async () => {
+        if (!nextCursor) return
+        try {
+            const token = localStorage.getItem('token')
+            const response = await axios.get('http://localhost/api/comp-vac/vacancy', {
+                params: { cursor: nextCursor, size: 100 },
+                headers: {
+                    Authorization: `Bearer ${token}`
+                }
+            })
+            setVacancies((prev) => [...prev, ...response.data.items])
+            setNextCursor(response.data.nextCursor)
+        } catch (error) {
+            console.error('Ошибка загрузки вакансий:', error)
+        }
+    }
+
     const getValue = (value: string | null) => value || 'Не указано'
 
     const handleResponse = async (vacancyId: number, vacancyName: string) => {
@@ -510,6 +530,17 @@ export default function HomePage() {
                                             </div>
                                         </div>
                                     )}
+
+                                    {nextCursor && (
+                                        <div className="mt-6 flex justify-center">
+                                            <button
+                                                onClick={() => void loadMore()}
+                                                className="px-6 py-2 border rounded-lg text-gray-700 hover:bg-gray-100"
+                                            >
+                                                Загрузить ещё
+                                            </button>
+                                        </div>
+                                    )}
                                 </>
                             )}
 
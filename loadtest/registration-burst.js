@@ -0,0 +1,40 @@
+// Всплеск регистраций: каждое письмо с подтверждением идёт через MailDeliveryEngine notification-service.
+//
+// SMTP - локальный GreenMail, а не Gmail:
+//   MAIL_HOST=greenmail MAIL_PORT=3025 MAIL_STARTTLS=false MAIL_DEBUG=false docker compose --profile loadtest up -d --build
+//   k6 run -e BASE_URL=http://localhost loadtest/registration-burst.js
+// Во время прогона смотрите метрики (actuator на непубликуемом порту 9081):
+//   docker compose exec notification-service curl -s localhost:9081/actuator/metrics/mail.delivery.queue.size
+//   mail.delivery.queue.size - очередь не должна расти бесконечно;
+//   mail.delivery.sent / mail.delivery.send (тег connection) - пропускная способность каждого соединения;
+//   mail.delivery.connections.opened - подключений должно быть на порядки меньше, чем писем.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost';
+const RATE = Number(__ENV.RATE || 200);
+
+export const options = {
+    scenarios: {
+        burst: {
+            executor: 'constant-arrival-rate',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: __ENV.DURATION || '1m',
+            preAllocatedVUs: 200,
+            maxVUs: 1000,
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+const params = { headers: { 'Content-Type': 'application/json' } };
+
+export default function () {
+    const login = `load-${__VU}-${__ITER}-${Date.now()}@localhost`;
+    const res = http.post(`${BASE_URL}/api/auth/register`,
+        JSON.stringify({ login: login, password: 'password123' }), params);
+    check(res, { 'register 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
@@ -0,0 +1,37 @@
+// Нагрузочный тест ленты вакансий (k6).
+//
+//   k6 run -e BASE_URL=http://localhost:8083 -e TOKEN=<jwt> loadtest/vacancy-feed.js
+//
+// Для сравнения прогоните сценарий до и после изменения с одинаковым
+// server.tomcat.threads.max и сравните http_reqs/s и p95/p99 http_req_duration.
+// Занятость пула @Async видна в /actuator/metrics/executor.active и executor.queued.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8083';
+const TOKEN = __ENV.TOKEN;
+
+export const options = {
+    scenarios: {
+        ramp: {
+            executor: 'ramping-vus',
+            startVUs: 10,
+            stages: [
+                { duration: '30s', target: 100 },
+                { duration: '1m', target: 400 },
+                { duration: '1m', target: 800 },
+                { duration: '30s', target: 0 },
+            ],
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+export default function () {
+    const res = http.get(`${BASE_URL}/api/comp-vac/vacancy?size=20`, {
+        headers: { Authorization: `Bearer ${TOKEN}` },
+    });
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
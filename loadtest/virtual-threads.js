@@ -0,0 +1,41 @@
+// Сравнение режимов платформенных и виртуальных потоков при 5k одновременных соединений (k6).
+//
+// Один и тот же сценарий прогоняется дважды:
+//   VIRTUAL_THREADS_ENABLED=false docker compose up -d --build
+//   k6 run -e BASE_URL=http://localhost -e TOKEN=<jwt> loadtest/virtual-threads.js
+//   VIRTUAL_THREADS_ENABLED=true docker compose up -d --build
+//   k6 run -e BASE_URL=http://localhost -e TOKEN=<jwt> loadtest/virtual-threads.js
+// Сравниваются http_reqs/s, p95/p99 http_req_duration и http_req_failed;
+// параллельно полезно смотреть jvm.threads.live и executor.* в /actuator/metrics.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost';
+const TOKEN = __ENV.TOKEN;
+const VUS = Number(__ENV.VUS || 5000);
+
+export const options = {
+    scenarios: {
+        connections: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    noConnectionReuse: false,
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+const params = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export default function () {
+    // JDBC + Redis (проверка blacklist) в auth-service
+    const profile = http.get(`${BASE_URL}/api/auth/profile`, params);
+    check(profile, { 'profile 200': (r) => r.status === 200 });
+
+    // JDBC в company-vacancy-service
+    const feed = http.get(`${BASE_URL}/api/comp-vac/vacancy?size=20`, params);
+    check(feed, { 'feed 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import com.example.demo.service.DeliveryRetryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// /actuator/dlt: GET - сколько писем лежит в DLT, POST {"limit": N} - вернуть до N записей в исходные топики
+// (например, после исправления SMTP-настроек). Аутентификации нет: actuator слушает отдельный
+// management.server.port, который docker-compose не публикует наружу, и nginx его не проксирует.
+@Component
+@Endpoint(id = "dlt")
+public class DeadLetterEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final DeliveryRetryService deliveryRetryService;
+
+    @Autowired
+    public DeadLetterEndpoint(DeliveryRetryService deliveryRetryService) {
+        this.deliveryRetryService = deliveryRetryService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> backlog() {
+        return Map.of("topic", deliveryRetryService.deadLetterTopic(),
+                "pending", deliveryRetryService.deadLetterBacklog());
+    }
+
+    @WriteOperation
+    public Map<String, Object> replay(@Nullable Integer limit) {
+        Map<String, Integer> replayed = deliveryRetryService.replayDeadLetters(limit == null ? DEFAULT_LIMIT : limit);
+        return Map.of("replayed", replayed.values().stream().mapToInt(Integer::intValue).sum(),
+                "topics", replayed);
+    }
+}
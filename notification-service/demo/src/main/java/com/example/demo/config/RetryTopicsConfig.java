@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import com.example.demo.service.DeliveryRetryService;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// retry-топики и DLT создаются при старте (KafkaAdmin), не полагаясь на auto.create.topics.enable брокера
+@Configuration
+public class RetryTopicsConfig {
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(DeliveryRetryService deliveryRetryService) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (int tier = 0; tier < deliveryRetryService.tiers(); tier++) {
+            topics.add(TopicBuilder.name(deliveryRetryService.retryTopic(tier)).build());
+        }
+        topics.add(TopicBuilder.name(deliveryRetryService.deadLetterTopic()).build());
+        return new KafkaAdmin.NewTopics(topics.toArray(new NewTopic[0]));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Письмо после отрисовки шаблона: тема, текстовая и HTML-версии (уходят одним multipart/alternative)
+@Data
+@AllArgsConstructor
+public class RenderedEmail {
+    private String subject;
+    private String text;
+    private String html;
+}
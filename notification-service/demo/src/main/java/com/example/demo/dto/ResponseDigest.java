@@ -0,0 +1,47 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Накопленные отклики одного получателя на одну вакансию (значение в checkpoint'е Redis - этот объект в JSON)
+@Data
+@NoArgsConstructor
+public class ResponseDigest {
+    private String email;
+    private Long vacancyId;
+    // название вакансии - только для текста письма, одноимённые вакансии копятся раздельно
+    private String response;
+    private long firstAt;
+    // язык дайджеста - из первого отклика окна
+    private String locale;
+    // Set: повторно прочитанная пачка не дублирует кандидатов
+    private Set<String> usernames = new LinkedHashSet<>();
+    // неудачные попытки отправки и время следующей (0 - дайджест ещё не отправлялся)
+    private int attempts;
+    private long retryAt;
+
+    public ResponseDigest(String email, Long vacancyId, String response, long firstAt, String locale) {
+        this.email = email;
+        this.vacancyId = vacancyId;
+        this.response = response;
+        this.firstAt = firstAt;
+        this.locale = locale;
+    }
+
+    public String key() {
+        return key(email, vacancyId, response);
+    }
+
+    // событие без id вакансии (записано до его появления) копится по названию, как раньше
+    public static String key(String email, Long vacancyId, String response) {
+        return email + "\n" + (vacancyId != null ? "#" + vacancyId : response);
+    }
+
+    // поле хэша в Redis: своё у каждого окна, чтобы удаление отправленного дайджеста не задело следующий
+    public String field() {
+        return key() + "\n" + firstAt;
+    }
+}
@@ -13,6 +13,10 @@ import java.util.Date;
 @Data
 public class ResponseNotificationEvent {
     private String username;
+    // id вакансии - по нему копятся дайджесты; response - только название для письма
+    private Long vacancyId;
     private String response;
     private String email;
+    // язык письма работодателю; нет - notification.mail.default-locale
+    private String locale;
 }
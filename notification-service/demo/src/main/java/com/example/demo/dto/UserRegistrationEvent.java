@@ -6,4 +6,6 @@ import lombok.Data;
 public class UserRegistrationEvent {
     private String login;
     private String token;
+    // язык письма (ru, en-US, ...); нет - notification.mail.default-locale
+    private String locale;
 }
@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// notification.consumer.lag{topic}: сколько записей топика ещё не прочитано этим экземпляром.
+// Считается после каждой пачки по consumer.currentLag - из метаданных последнего fetch, без запросов к брокеру.
+@Component
+public class ConsumerLagMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TopicPartition, Long> lag = new ConcurrentHashMap<>();
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ConsumerLagMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // вызывается из потока листенера: KafkaConsumer не потокобезопасен
+    public void record(Consumer<?, ?> consumer) {
+        Set<TopicPartition> assignment = consumer.assignment();
+        // партиции, ушедшие при ребалансировке другому экземпляру, больше не считаем
+        lag.keySet().removeIf(tp -> consumer.subscription().contains(tp.topic()) && !assignment.contains(tp));
+        for (TopicPartition tp : assignment) {
+            OptionalLong current = consumer.currentLag(tp);
+            if (current.isPresent()) {
+                lag.put(tp, current.getAsLong());
+            }
+            if (topics.add(tp.topic())) {
+                Gauge.builder("notification.consumer.lag", lag, partitions -> sum(partitions, tp.topic()))
+                        .tag("topic", tp.topic())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    private static double sum(Map<TopicPartition, Long> partitions, String topic) {
+        return partitions.entrySet().stream()
+                .filter(e -> e.getKey().topic().equals(topic))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.ParseException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mail.MailParseException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Неблокирующие повторы писем. Запись, которую не удалось доставить, публикуется в notification-retry-<N>
+// с задержкой initial-interval * multiplier^N (её читают отдельные consumer'ы, RetryTierConsumers),
+// после последнего уровня или при постоянной ошибке (битый JSON, адрес отклонён) - в DLT.
+// Основные листенеры при этом не ждут: коммит их offset'ов задерживается только на публикацию в retry-топик.
+@Slf4j
+@Service
+public class DeliveryRetryService {
+
+    public static final String HEADER_ORIGINAL_TOPIC = "retry-original-topic";
+    public static final String HEADER_ATTEMPT = "retry-attempt";
+    public static final String HEADER_DUE_AT = "retry-due-at";
+    public static final String HEADER_ERROR = "retry-error";
+
+    private static final String REPLAY_GROUP = "notification-dlt-replay";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final String retryTopicPrefix;
+    private final String deadLetterTopic;
+    private final List<Duration> backoff = new ArrayList<>();
+
+    @Autowired
+    public DeliveryRetryService(KafkaTemplate<String, String> kafkaTemplate,
+                                ConsumerFactory<?, ?> consumerFactory,
+                                @Value("${notification.retry.topic-prefix:notification-retry-}") String retryTopicPrefix,
+                                @Value("${notification.retry.dlt-topic:notification-dlt}") String deadLetterTopic,
+                                @Value("${notification.retry.initial-interval:1m}") Duration initialInterval,
+                                @Value("${notification.retry.multiplier:5}") double multiplier,
+                                @Value("${notification.retry.attempts:3}") int attempts) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.consumerFactory = consumerFactory;
+        this.retryTopicPrefix = retryTopicPrefix;
+        this.deadLetterTopic = deadLetterTopic;
+        for (int tier = 0; tier < attempts; tier++) {
+            backoff.add(Duration.ofMillis((long) (initialInterval.toMillis() * Math.pow(multiplier, tier))));
+        }
+    }
+
+    public int tiers() {
+        return backoff.size();
+    }
+
+    // задержка перед повтором номер attempt + 1
+    public Duration backoff(int attempt) {
+        return backoff.get(attempt);
+    }
+
+    public String retryTopic(int tier) {
+        return retryTopicPrefix + tier;
+    }
+
+    public String deadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    // исходный топик записи: у повторов - из заголовка
+    public String originalTopic(ConsumerRecord<String, String> record) {
+        String original = header(record, HEADER_ORIGINAL_TOPIC);
+        return original != null ? original : record.topic();
+    }
+
+    public long dueAt(ConsumerRecord<String, String> record) {
+        String dueAt = header(record, HEADER_DUE_AT);
+        return dueAt != null ? Long.parseLong(dueAt) : 0;
+    }
+
+    // следующий уровень retry или DLT; future завершается, когда запись принята брокером
+    public CompletableFuture<Void> retry(ConsumerRecord<String, String> record, Throwable error) {
+        Throwable cause = unwrap(error);
+        int attempt = attempt(record);
+        if (isPermanent(cause) || attempt >= backoff.size()) {
+            log.warn("{}@{}-{}: moved to {} after {} retries: {}", originalTopic(record), record.partition(),
+                    record.offset(), deadLetterTopic, attempt, cause.toString());
+            return publish(deadLetterTopic, record, attempt, 0, cause);
+        }
+        long dueAt = System.currentTimeMillis() + backoff.get(attempt).toMillis();
+        log.info("{}@{}-{}: retry {} in {}: {}", originalTopic(record), record.partition(), record.offset(),
+                attempt + 1, backoff.get(attempt), cause.toString());
+        return publish(retryTopic(attempt), record, attempt + 1, dueAt, cause);
+    }
+
+    // В DLT то, чего нет в Kafka (дайджест откликов ResponseDigestService): replay вернёт запись в originalTopic
+    public CompletableFuture<Void> deadLetter(String originalTopic, String key, String value, int attempt,
+                                              Throwable error) {
+        Throwable cause = unwrap(error);
+        log.warn("{}: moved to {} after {} retries: {}", originalTopic, deadLetterTopic, attempt, cause.toString());
+        return publish(deadLetterTopic, originalTopic, key, value, attempt, 0, cause);
+    }
+
+    // Возвращает до limit записей DLT в исходные топики (с нулевым счётчиком попыток).
+    // Прочитанное коммитится группой notification-dlt-replay, повторный вызов берёт следующие записи.
+    public Map<String, Integer> replayDeadLetters(int limit) {
+        Map<String, Integer> replayed = new LinkedHashMap<>();
+        try (Consumer<String, String> consumer = replayConsumer(limit)) {
+            consumer.subscribe(List.of(deadLetterTopic));
+            Map<TopicPartition, OffsetAndMetadata> processed = new HashMap<>();
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            int total = 0;
+            while (total < limit) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(5));
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<String, String> record : records) {
+                    if (total == limit) {
+                        break;
+                    }
+                    String topic = originalTopic(record);
+                    sends.add(kafkaTemplate.send(topic, record.key(), record.value()));
+                    processed.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                    replayed.merge(topic, 1, Integer::sum);
+                    total++;
+                }
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            consumer.commitSync(processed);
+            log.info("replayed {} dead letters: {}", total, replayed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор DLT прерван", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Не удалось вернуть записи DLT в исходные топики", e);
+        }
+        return replayed;
+    }
+
+    // сколько записей DLT ещё не возвращено
+    public long deadLetterBacklog() {
+        try (Consumer<String, String> consumer = replayConsumer(1)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(deadLetterTopic).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            return partitions.stream()
+                    .mapToLong(tp -> end.get(tp) - (committed.get(tp) == null ? 0 : committed.get(tp).offset()))
+                    .sum();
+        }
+    }
+
+    // ошибки, которые повтор не исправит
+    static boolean isPermanent(Throwable error) {
+        return error instanceof JsonProcessingException
+                || error instanceof SendFailedException
+                || error instanceof ParseException
+                || error instanceof MailParseException;
+    }
+
+    private CompletableFuture<Void> publish(String topic, ConsumerRecord<String, String> record, int attempt,
+                                            long dueAt, Throwable cause) {
+        return publish(topic, originalTopic(record), record.key(), record.value(), attempt, dueAt, cause);
+    }
+
+    private CompletableFuture<Void> publish(String topic, String originalTopic, String key, String value, int attempt,
+                                            long dueAt, Throwable cause) {
+        ProducerRecord<String, String> retry = new ProducerRecord<>(topic, key, value);
+        retry.headers().add(HEADER_ORIGINAL_TOPIC, originalTopic.getBytes(StandardCharsets.UTF_8));
+        retry.headers().add(HEADER_ATTEMPT, Integer.toString(attempt).getBytes(StandardCharsets.UTF_8));
+        retry.headers().add(HEADER_DUE_AT, Long.toString(dueAt).getBytes(StandardCharsets.UTF_8));
+        retry.headers().add(HEADER_ERROR, String.valueOf(cause).getBytes(StandardCharsets.UTF_8));
+        return kafkaTemplate.send(retry).thenApply(result -> null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<String, String> replayConsumer(int maxPollRecords) {
+        Properties overrides = new Properties();
+        overrides.put("max.poll.records", Integer.toString(maxPollRecords));
+        overrides.put("enable.auto.commit", "false");
+        overrides.put("auto.offset.reset", "earliest");
+        return (Consumer<String, String>) consumerFactory.createConsumer(REPLAY_GROUP, "replay", null, overrides);
+    }
+
+    private static int attempt(ConsumerRecord<String, String> record) {
+        String attempt = header(record, HEADER_ATTEMPT);
+        return attempt != null ? Integer.parseInt(attempt) : 0;
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -1,182 +1,259 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.RenderedEmail;
 import com.example.demo.dto.ResponseNotificationEvent;
 import com.example.demo.dto.UserRegistrationEvent;
+import com.example.demo.template.MailTemplateKind;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Листенеры получают из Kafka пачку записей (до spring.kafka.consumer.max-poll-records),
+// разом отдают все письма MailDeliveryEngine (параллельность ограничена его пулом соединений и очередью)
+// и возвращаются, когда каждое письмо отправлено или его запись передана в retry-топик / DLT (DeliveryRetryService);
+// письма, не отправленные за notification.batch.delivery-timeout, тоже уходят в retry-топик.
+// Offset'ы пачки контейнер коммитит после возврата (ack-mode=batch), поэтому при падении сервиса
+// необработанная пачка будет прочитана заново. Повторы читают отдельные consumer'ы (RetryTierConsumers)
+// и возвращают записи сюда же, в redeliver.
 @Service
 @Slf4j
 public class EmailService {
 
+    public static final String TOPIC_CHANGE = "user-change-event";
+    public static final String TOPIC_REGISTRATION = "user-registration";
+    public static final String TOPIC_FORGOT = "user-forgot-event";
+    public static final String TOPIC_RESPONSE = "response-notifications";
+
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
-    private final JavaMailSender mailSender;
+    // сколько ждать подтверждения retry-топика для писем, не отправленных за batchTimeout
+    private static final Duration RETRY_PUBLISH_TIMEOUT = Duration.ofSeconds(30);
+
+    private final MailDeliveryEngine mailDeliveryEngine;
     private final ObjectMapper objectMapper;
+    private final ConsumerLagMetrics consumerLagMetrics;
+    private final ResponseDigestService responseDigestService;
+    private final DeliveryRetryService deliveryRetryService;
+    private final MailTemplateService mailTemplateService;
+    private final String baseUrl;
+    private final Duration batchTimeout;
 
     @Autowired
-    public EmailService(JavaMailSender mailSender, ObjectMapper objectMapper) {
-        this.mailSender = mailSender;
+    public EmailService(MailDeliveryEngine mailDeliveryEngine, ObjectMapper objectMapper,
+                        ConsumerLagMetrics consumerLagMetrics, ResponseDigestService responseDigestService,
+                        DeliveryRetryService deliveryRetryService, MailTemplateService mailTemplateService,
+                        @Value("${notification.mail.base-url:http://localhost:3000}") String baseUrl,
+                        @Value("${notification.batch.delivery-timeout:2m}") Duration batchTimeout) {
+        this.mailDeliveryEngine = mailDeliveryEngine;
         this.objectMapper = objectMapper;
+        this.consumerLagMetrics = consumerLagMetrics;
+        this.responseDigestService = responseDigestService;
+        this.deliveryRetryService = deliveryRetryService;
+        this.mailTemplateService = mailTemplateService;
+        this.baseUrl = baseUrl;
+        this.batchTimeout = batchTimeout;
     }
 
-    @KafkaListener(topics = "user-change-event", groupId = "email-change-group")
-    public void changeEmail(String message) {
-        try {
-            // Десериализация JSON в DTO
-            UserRegistrationEvent event = objectMapper.readValue(message, UserRegistrationEvent.class);
-
-            // Логика обработки события (отправка уведомления)
-            sendConfirmationChangeEmail(event.getLogin(), event.getToken());
-
-        } catch (Exception e) {
-            logger.error("An error occurred", e);
-        }
+    @KafkaListener(topics = TOPIC_CHANGE, groupId = "email-change-group", batch = "true")
+    public void changeEmail(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        deliver(records);
+        consumerLagMetrics.record(consumer);
     }
 
+    @KafkaListener(topics = TOPIC_REGISTRATION, groupId = "registration-group", batch = "true")
+    public void listenRegistration(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        deliver(records);
+        consumerLagMetrics.record(consumer);
+    }
 
-    @KafkaListener(topics = "user-registration", groupId = "registration-group")
-    public void listenRegistration(String message) {
-        try {
-            // Десериализация JSON в DTO
-            UserRegistrationEvent event = objectMapper.readValue(message, UserRegistrationEvent.class);
+    @KafkaListener(topics = TOPIC_FORGOT, groupId = "user-forgot-event", batch = "true")
+    public void listenForgotEmail(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        deliver(records);
+        consumerLagMetrics.record(consumer);
+    }
 
-            // Логика обработки события (отправка уведомления)
-            sendVerificationEmail(event.getLogin(), event.getToken());
+    // отклики не отправляются по одному, а копятся в дайджесты (ResponseDigestService)
+    @KafkaListener(topics = TOPIC_RESPONSE, groupId = "response-notifications", batch = "true")
+    public void listenAddResponse(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        deliver(records);
+        consumerLagMetrics.record(consumer);
+    }
 
-        } catch (Exception e) {
-            logger.error("An error occurred", e);
-        }
+    // записи из retry-топиков, у которых подошло время; топики в пачке могут быть любые
+    public void redeliver(List<ConsumerRecord<String, String>> records) {
+        deliver(records);
     }
 
-    @KafkaListener(topics = "user-forgot-event", groupId = "user-forgot-event")
-    public void listenForgotEmail(String message) {
+    private void deliver(List<ConsumerRecord<String, String>> records) {
+        Map<String, List<ConsumerRecord<String, String>>> byTopic = records.stream()
+                .collect(Collectors.groupingBy(deliveryRetryService::originalTopic, LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<Void>> sending = new ArrayList<>(records.size());
+        List<CompletableFuture<Void>> handled = new ArrayList<>(records.size());
+        byTopic.forEach((topic, topicRecords) -> {
+            List<CompletableFuture<Void>> sent = dispatch(topic, topicRecords);
+            for (int i = 0; i < topicRecords.size(); i++) {
+                ConsumerRecord<String, String> record = topicRecords.get(i);
+                sending.add(sent.get(i));
+                // неудача не задерживает пачку: запись уходит в retry-топик, ждём только подтверждения брокера
+                handled.add(sent.get(i).handle((result, e) -> e == null
+                                ? CompletableFuture.<Void>completedFuture(null)
+                                : deliveryRetryService.retry(record, e))
+                        .thenCompose(Function.identity()));
+            }
+        });
+        CompletableFuture<Void> all = CompletableFuture.allOf(handled.toArray(new CompletableFuture[0]));
         try {
-            // Десериализация JSON в DTO
-            UserRegistrationEvent event = objectMapper.readValue(message, UserRegistrationEvent.class);
+            try {
+                all.get(batchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Не отправленные за batchTimeout письма завершаются ошибкой и уходят в retry-топик,
+                // MailDeliveryEngine их уже не отправит (кроме тех, что отправляются прямо сейчас).
+                // Пачку не бросаем: её повтор поставил бы в очередь письма, которые ещё ждут там отправки.
+                TimeoutException timeout = new TimeoutException("Письмо не отправлено за " + batchTimeout);
+                int abandoned = 0;
+                for (CompletableFuture<Void> sent : sending) {
+                    if (sent.completeExceptionally(timeout)) {
+                        abandoned++;
+                    }
+                }
+                log.warn("{} of {} emails from {} not delivered in {}, moved to retry", abandoned, records.size(),
+                        records.get(0).topic(), batchTimeout);
+                all.get(RETRY_PUBLISH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Отправка пачки писем прервана", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // не приняты retry-топиком; писем пачки в очереди уже нет, так что повтор пачки их не задвоит
+            throw new IllegalStateException("Пачка из " + records.size() + " писем не передана на повтор", e);
+        }
+        log.info("batch of {} records from {} delivered", records.size(), records.get(0).topic());
+    }
 
-            // Логика обработки события (отправка уведомления)
-            sendForgotEmail(event.getLogin(), event.getToken());
+    // future на каждую запись, в том же порядке
+    private List<CompletableFuture<Void>> dispatch(String topic, List<ConsumerRecord<String, String>> records) {
+        return switch (topic) {
+            case TOPIC_CHANGE -> each(records, UserRegistrationEvent.class,
+                    event -> sendConfirmationChangeEmail(event.getLogin(), event.getToken(), event.getLocale()));
+            case TOPIC_REGISTRATION -> each(records, UserRegistrationEvent.class,
+                    event -> sendVerificationEmail(event.getLogin(), event.getToken(), event.getLocale()));
+            case TOPIC_FORGOT -> each(records, UserRegistrationEvent.class,
+                    event -> sendForgotEmail(event.getLogin(), event.getToken(), event.getLocale()));
+            case TOPIC_RESPONSE -> responses(records);
+            default -> records.stream()
+                    .map(record -> CompletableFuture.<Void>failedFuture(
+                            new IllegalArgumentException("Неизвестный топик " + topic)))
+                    .toList();
+        };
+    }
 
-        } catch (Exception e) {
-            logger.error("An error occurred", e);
+    private <T> List<CompletableFuture<Void>> each(List<ConsumerRecord<String, String>> records, Class<T> type,
+                                                   Function<T, CompletableFuture<Void>> send) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                sent.add(send.apply(parse(record, type)));
+            } catch (JsonProcessingException e) {
+                sent.add(CompletableFuture.failedFuture(e));
+            }
         }
+        return sent;
     }
 
-
-    @KafkaListener(topics = "response-notifications", groupId = "response-notifications")
-    public void listenAddResponse(String message) {
+    // Отклики пачки - одним вызовом addAll (один HSET в checkpoint дайджестов), future на каждый отклик.
+    // Redis недоступен - все разобранные отклики пачки уходят на повтор; без дайджестов - только неотправленные.
+    private List<CompletableFuture<Void>> responses(List<ConsumerRecord<String, String>> records) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(records.size());
+        List<ResponseNotificationEvent> events = new ArrayList<>(records.size());
+        List<Integer> parsed = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                ResponseNotificationEvent event = parse(record, ResponseNotificationEvent.class);
+                if (event.getVacancyId() == null) {
+                    event.setVacancyId(vacancyId(record));
+                }
+                events.add(event);
+                parsed.add(sent.size());
+                sent.add(null);
+            } catch (JsonProcessingException e) {
+                sent.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<CompletableFuture<Void>> added;
         try {
-            // Десериализация JSON в DTO
-            ResponseNotificationEvent event = objectMapper.readValue(message, ResponseNotificationEvent.class);
-
-            log.info("Событие пришло");
-
-            // Логика обработки события (отправка уведомления)
-            sendMsgAboutResponse(event.getUsername(), event.getResponse(), event.getEmail());
-
-        } catch (Exception e) {
-            logger.error("An error occurred", e);
+            added = responseDigestService.addAll(events);
+        } catch (RuntimeException e) {
+            added = Collections.nCopies(events.size(), CompletableFuture.failedFuture(e));
+        }
+        for (int i = 0; i < parsed.size(); i++) {
+            sent.set(parsed.get(i), added.get(i));
         }
+        return sent;
     }
 
-
-    @Async
-    public void sendConfirmationChangeEmail(String to, String token) {
-        String subject = "Подтверждение изменения ";
-        String confirmationUrl = "http://localhost:3000/profile?token=" + token;
-        String message = "Перейдите по ссылке для подтверждения смены email: " + confirmationUrl;
-
-        SimpleMailMessage email = new SimpleMailMessage();
-        email.setTo(to);
-        email.setSubject(subject);
-        email.setText(message);
-
-        mailSender.send(email);
+    // ключ записи отклика - id вакансии (KafkaProducerService company-vacancy-service)
+    private static Long vacancyId(ConsumerRecord<String, String> record) {
+        try {
+            return record.key() == null ? null : Long.valueOf(record.key());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
-    @Async
-    public void sendVerificationEmail(String to, String token) {
-        String subject = "Подтверждение email";
-        String confirmationUrl = "http://localhost:3000/auth/confirm?token=" + token;
-
-        String textContent = """
-    Здравствуйте!
-    
-    Для подтверждения вашего email перейдите по ссылке:
-    %s
-    
-    Ссылка действительна в течение 24 часов.
-    
-    Если вы не регистрировались на нашем сервисе, проигнорируйте это письмо.
-    """.formatted(confirmationUrl);
-
-        SimpleMailMessage email = new SimpleMailMessage();
-        email.setTo(to);
-        email.setSubject(subject);
-        email.setText(textContent);
-
+    private <T> T parse(ConsumerRecord<String, String> record, Class<T> type) throws JsonProcessingException {
         try {
-            mailSender.send(email);
-        } catch (MailException e) {
-            logger.error("Ошибка при отправке письма с подтверждением email", e);
+            // Десериализация JSON в DTO
+            return objectMapper.readValue(record.value(), type);
+        } catch (JsonProcessingException e) {
+            // битое событие не повторяем - оно не станет валидным, DeliveryRetryService отправит его в DLT
+            logger.error("Некорректное событие {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+            throw e;
         }
     }
 
-    @Async
-    public void sendForgotEmail(String to, String token) {
-        String subject = "Восстановление пароля";
-        String resetUrl = "http://localhost:3000/auth/reset-password?token=" + token;
 
-        String textContent = """
-        Здравствуйте!
-        
-        Для восстановления пароля перейдите по ссылке:
-        %s
-        
-        Ссылка действительна в течение 24 часов.
-        
-        Если вы не запрашивали восстановление пароля, проигнорируйте это письмо.
-        """.formatted(resetUrl);
+    public CompletableFuture<Void> sendConfirmationChangeEmail(String to, String token, String locale) {
+        return send(to, MailTemplateKind.EMAIL_CHANGE, locale, baseUrl + "/profile?token=" + token);
+    }
 
-        SimpleMailMessage email = new SimpleMailMessage();
-        email.setTo(to);
-        email.setSubject(subject);
-        email.setText(textContent);
+    public CompletableFuture<Void> sendVerificationEmail(String to, String token, String locale) {
+        return send(to, MailTemplateKind.VERIFICATION, locale, baseUrl + "/auth/confirm?token=" + token);
+    }
 
-        try {
-            mailSender.send(email);
-        } catch (MailException e) {
-            logger.error("Ошибка при отправке письма для восстановления пароля", e);
-        }
+    public CompletableFuture<Void> sendForgotEmail(String to, String token, String locale) {
+        return send(to, MailTemplateKind.PASSWORD_RESET, locale, baseUrl + "/auth/reset-password?token=" + token);
     }
 
-    @Async
-    public void sendMsgAboutResponse(String username, String responseName, String to) {
-        String subject = "Новый отклик на вакансию " + responseName;
-        String message = String.format(
-                "Уважаемый работодатель,\n" +
-                        "На вашу вакансию «%s» откликнулся новый кандидат.\n\n" +
-                        "Контактные данные для связи:\n" +
-                        "📧 Email: %s\n\n" +
-                        "Это автоматическое уведомление. Пожалуйста, не отвечайте на это письмо.",
-                responseName, username
-        );
+    private CompletableFuture<Void> send(String to, MailTemplateKind kind, String locale, String url) {
+        RenderedEmail rendered = mailTemplateService.render(kind, locale, url);
 
         SimpleMailMessage email = new SimpleMailMessage();
         email.setTo(to);
-        email.setSubject(subject);
-        email.setText(message);
+        email.setSubject(rendered.getSubject());
+        email.setText(rendered.getText());
 
-        mailSender.send(email);
+        return mailDeliveryEngine.submit(email, rendered.getHtml());
     }
 }
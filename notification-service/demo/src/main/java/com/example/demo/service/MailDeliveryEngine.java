@@ -0,0 +1,332 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Отправка писем пулом постоянных SMTP-соединений.
+// Kafka-листенеры только кладут письмо в ограниченную очередь; pool-size потоков разбирают её пачками,
+// и у каждого свой открытый Transport: подключение, STARTTLS и AUTH - раз на соединение, а не на письмо.
+// Очередь полна - submit ждёт, листенер перестаёт читать Kafka, пока SMTP не догонит.
+// submit возвращает future, который завершается, когда письмо отправлено или окончательно не отправлено.
+// Не удалось подключиться - соединение reconnect-backoff не пытается снова и сразу отказывает письмам:
+// недоступный SMTP не держит листенеры на таймаутах, письма уходят в retry-топики (DeliveryRetryService).
+@Slf4j
+@Service
+public class MailDeliveryEngine implements SmartLifecycle {
+
+    // пока поток ждёт письма, раз в POLL проверяет простой соединения и остановку
+    private static final long POLL_MS = 500;
+
+    private final JavaMailSenderImpl mailSender;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Delivery> queue;
+    private final int poolSize;
+    private final int batchSize;
+    private final int maxMessagesPerConnection;
+    private final Duration idleTimeout;
+    private final Duration reconnectBackoff;
+    private final Duration enqueueTimeout;
+    private final Duration shutdownTimeout;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public MailDeliveryEngine(JavaMailSenderImpl mailSender,
+                              MeterRegistry meterRegistry,
+                              @Value("${mail.delivery.pool-size:4}") int poolSize,
+                              @Value("${mail.delivery.queue-capacity:1000}") int queueCapacity,
+                              @Value("${mail.delivery.batch-size:50}") int batchSize,
+                              @Value("${mail.delivery.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                              @Value("${mail.delivery.idle-timeout:30s}") Duration idleTimeout,
+                              @Value("${mail.delivery.reconnect-backoff:5s}") Duration reconnectBackoff,
+                              @Value("${mail.delivery.enqueue-timeout:30s}") Duration enqueueTimeout,
+                              @Value("${mail.delivery.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.poolSize = poolSize;
+        this.batchSize = batchSize;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeout = idleTimeout;
+        this.reconnectBackoff = reconnectBackoff;
+        this.enqueueTimeout = enqueueTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        meterRegistry.gauge("mail.delivery.queue.size", queue, BlockingQueue::size);
+    }
+
+    public CompletableFuture<Void> submit(SimpleMailMessage message) {
+        return submit(message, null);
+    }
+
+    // html != null - письмо уходит как multipart/alternative: текст из message и HTML-версия
+    public CompletableFuture<Void> submit(SimpleMailMessage message, String html) {
+        Delivery delivery = new Delivery(message, html);
+        try {
+            if (!queue.offer(delivery, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("mail queue is full for {}, message to {} dropped", enqueueTimeout, String.join(",", message.getTo()));
+                delivery.result.completeExceptionally(new MailSendException("Очередь писем переполнена, письмо для "
+                        + String.join(",", message.getTo()) + " не отправлено"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delivery.result.completeExceptionally(new MailSendException("Постановка письма в очередь прервана", e));
+        }
+        return delivery.result;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < poolSize; i++) {
+            SmtpConnection connection = new SmtpConnection("smtp-" + i);
+            Thread worker = new Thread(() -> work(connection), "mail-delivery-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("mail delivery started: {} connections to {}:{}", poolSize, mailSender.getHost(), mailSender.getPort());
+    }
+
+    // останавливается после Kafka-листенеров и дописывает то, что уже в очереди
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.stream().filter(Thread::isAlive).forEach(Thread::interrupt);
+        workers.clear();
+        if (!queue.isEmpty()) {
+            log.warn("mail delivery stopped with {} unsent messages", queue.size());
+            List<Delivery> unsent = new ArrayList<>();
+            queue.drainTo(unsent);
+            unsent.forEach(d -> d.result.completeExceptionally(new MailSendException("Сервис остановлен до отправки письма")));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // запускается раньше, а останавливается позже листенер-контейнеров Kafka
+    @Override
+    public int getPhase() {
+        return KafkaListenerEndpointRegistry.DEFAULT_PHASE - 100;
+    }
+
+    private void work(SmtpConnection connection) {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Delivery first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    connection.closeIfIdle();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Delivery delivery : batch) {
+                    // future уже завершён - EmailService отдал запись на повтор по таймауту пачки
+                    if (!delivery.result.isDone()) {
+                        connection.send(delivery);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connection.close();
+        }
+    }
+
+    // Одно SMTP-соединение и его метрики (тег connection): sent/failed, число подключений и время отправки
+    private class SmtpConnection {
+
+        private final String name;
+        private final Counter sent;
+        private final Counter failed;
+        private final Counter opened;
+        private final Timer sendTimer;
+
+        private Transport transport;
+        private int messagesOnConnection;
+        private long lastUsed;
+        private long unavailableUntil;
+
+        SmtpConnection(String name) {
+            this.name = name;
+            this.sent = meterRegistry.counter("mail.delivery.sent", "connection", name);
+            this.failed = meterRegistry.counter("mail.delivery.failed", "connection", name);
+            this.opened = meterRegistry.counter("mail.delivery.connections.opened", "connection", name);
+            this.sendTimer = meterRegistry.timer("mail.delivery.send", "connection", name);
+        }
+
+        void send(Delivery delivery) {
+            SimpleMailMessage message = delivery.message;
+            MimeMessage mime;
+            try {
+                mime = toMime(message, delivery.html);
+            } catch (MessagingException | MailParseException e) {
+                failed.increment();
+                log.error("{}: не удалось собрать письмо для {}", name, String.join(",", message.getTo()), e);
+                delivery.result.completeExceptionally(e);
+                return;
+            }
+            // соединение могло закрыться на стороне сервера - одна повторная попытка на новом
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    open();
+                    long start = System.nanoTime();
+                    transport.sendMessage(mime, mime.getAllRecipients());
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    sent.increment();
+                    lastUsed = System.nanoTime();
+                    if (++messagesOnConnection >= maxMessagesPerConnection) {
+                        close();
+                    }
+                    delivery.result.complete(null);
+                    return;
+                } catch (SendFailedException e) {
+                    // отказ по адресату, соединение живое
+                    failed.increment();
+                    log.error("{}: письмо для {} отклонено сервером", name, String.join(",", message.getTo()), e);
+                    delivery.result.completeExceptionally(e);
+                    return;
+                } catch (MessagingException e) {
+                    close();
+                    if (attempt > 0) {
+                        failed.increment();
+                        log.error("{}: ошибка отправки письма для {}", name, String.join(",", message.getTo()), e);
+                        delivery.result.completeExceptionally(e);
+                        return;
+                    }
+                }
+            }
+        }
+
+        void closeIfIdle() {
+            if (transport != null && System.nanoTime() - lastUsed > idleTimeout.toNanos()) {
+                close();
+            }
+        }
+
+        void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("{}: ошибка при закрытии соединения", name, e);
+                }
+                transport = null;
+            }
+        }
+
+        private void open() throws MessagingException {
+            if (transport != null && transport.isConnected()) {
+                return;
+            }
+            close();
+            if (System.nanoTime() - unavailableUntil < 0) {
+                throw new MessagingException("SMTP-сервер " + mailSender.getHost() + " недоступен");
+            }
+            // протокол и учётные данные - как в JavaMailSenderImpl (пустые - без AUTH)
+            Session session = mailSender.getSession();
+            String protocol = mailSender.getProtocol();
+            if (protocol == null) {
+                protocol = session.getProperty("mail.transport.protocol");
+            }
+            Transport fresh = session.getTransport(protocol == null ? JavaMailSenderImpl.DEFAULT_PROTOCOL : protocol);
+            String username = mailSender.getUsername();
+            String password = mailSender.getPassword();
+            try {
+                fresh.connect(mailSender.getHost(), mailSender.getPort(),
+                        username == null || username.isEmpty() ? null : username,
+                        password == null || password.isEmpty() ? null : password);
+            } catch (MessagingException e) {
+                unavailableUntil = System.nanoTime() + reconnectBackoff.toNanos();
+                throw e;
+            }
+            transport = fresh;
+            messagesOnConnection = 0;
+            lastUsed = System.nanoTime();
+            opened.increment();
+        }
+
+        private MimeMessage toMime(SimpleMailMessage message, String html) throws MessagingException {
+            MimeMessage mime = mailSender.createMimeMessage();
+            if (html == null) {
+                message.copyTo(new MimeMailMessage(mime));
+            } else {
+                // заголовки - через helper (UTF-8), тело - multipart/alternative верхнего уровня:
+                // у MimeMessageHelper такого режима нет, его MIXED/RELATED вкладывают alternative глубже
+                MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+                message.copyTo(new MimeMailMessage(helper));
+                MimeBodyPart text = new MimeBodyPart();
+                text.setText(message.getText(), StandardCharsets.UTF_8.name());
+                MimeBodyPart htmlPart = new MimeBodyPart();
+                htmlPart.setText(html, StandardCharsets.UTF_8.name(), "html");
+                // клиент показывает последнюю понятную ему часть, поэтому HTML - вторым
+                MimeMultipart alternative = new MimeMultipart("alternative");
+                alternative.addBodyPart(text);
+                alternative.addBodyPart(htmlPart);
+                mime.setContent(alternative);
+            }
+            if (mime.getSentDate() == null) {
+                mime.setSentDate(new Date());
+            }
+            mime.saveChanges();
+            return mime;
+        }
+    }
+
+    private static final class Delivery {
+
+        private final SimpleMailMessage message;
+        private final String html;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Delivery(SimpleMailMessage message, String html) {
+            this.message = message;
+            this.html = html;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RenderedEmail;
+import com.example.demo.template.MailTemplate;
+import com.example.demo.template.MailTemplateKind;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Шаблоны писем компилируются при старте для каждого языка из notification.mail.locales (нет файла или
+// в шаблоне ошибка - сервис не стартует). Локаль события (ru, en-US, ...) сводится к языку, неизвестный
+// язык - к notification.mail.default-locale; итог кэшируется под самой локалью, так что повторный поиск - один get.
+@Slf4j
+@Service
+public class MailTemplateService {
+
+    // локали приходят из событий: кэш под произвольные строки не растёт бесконечно
+    private static final int MAX_CACHED_LOCALES = 64;
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final String defaultLocale;
+    private final List<String> locales;
+
+    private final Map<String, LocaleTemplates> compiled = new ConcurrentHashMap<>();
+    private final Map<String, LocaleTemplates> byLocale = new ConcurrentHashMap<>();
+    private LocaleTemplates defaults;
+
+    @Autowired
+    public MailTemplateService(ResourceLoader resourceLoader,
+                               @Value("${notification.mail.templates:classpath:mail-templates/}") String location,
+                               @Value("${notification.mail.default-locale:ru}") String defaultLocale,
+                               @Value("${notification.mail.locales:ru,en}") List<String> locales) {
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.defaultLocale = defaultLocale;
+        this.locales = locales;
+    }
+
+    @PostConstruct
+    public void precompile() {
+        for (String language : locales) {
+            compiled.put(language, compile(language));
+        }
+        defaults = compiled.computeIfAbsent(defaultLocale, this::compile);
+        log.info("mail templates compiled for {}", compiled.keySet());
+    }
+
+    // args - в порядке MailTemplateKind.getParams()
+    public RenderedEmail render(MailTemplateKind kind, String locale, Object... args) {
+        return templates(locale).get(kind).render(args);
+    }
+
+    private LocaleTemplates templates(String locale) {
+        if (locale == null || locale.isEmpty()) {
+            return defaults;
+        }
+        LocaleTemplates templates = byLocale.get(locale);
+        if (templates != null) {
+            return templates;
+        }
+        templates = compiled.getOrDefault(Locale.forLanguageTag(locale.replace('_', '-')).getLanguage(), defaults);
+        if (byLocale.size() < MAX_CACHED_LOCALES) {
+            byLocale.put(locale, templates);
+        }
+        return templates;
+    }
+
+    private LocaleTemplates compile(String language) {
+        Properties subjects = new Properties();
+        try (Reader reader = new InputStreamReader(open(language, "subjects.properties"), StandardCharsets.UTF_8)) {
+            subjects.load(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать темы писем для " + language, e);
+        }
+        LocaleTemplates templates = new LocaleTemplates();
+        for (MailTemplateKind kind : MailTemplateKind.values()) {
+            String subject = subjects.getProperty(kind.getFileName());
+            if (subject == null) {
+                throw new IllegalStateException("Нет темы письма " + kind.getFileName() + " для " + language);
+            }
+            try {
+                templates.put(kind, new CompiledEmail(
+                        MailTemplate.compile(subject, kind.getParams(), false),
+                        MailTemplate.compile(read(language, kind.getFileName() + ".txt"), kind.getParams(), false),
+                        MailTemplate.compile(read(language, kind.getFileName() + ".html"), kind.getParams(), true)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Ошибка в шаблоне " + language + "/" + kind.getFileName(), e);
+            }
+        }
+        return templates;
+    }
+
+    private String read(String language, String file) {
+        try (InputStream in = open(language, file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать шаблон " + language + "/" + file, e);
+        }
+    }
+
+    private InputStream open(String language, String file) throws IOException {
+        Resource resource = resourceLoader.getResource(location + language + "/" + file);
+        if (!resource.exists()) {
+            throw new IllegalStateException("Нет шаблона " + resource.getDescription());
+        }
+        return resource.getInputStream();
+    }
+
+    private static final class LocaleTemplates extends EnumMap<MailTemplateKind, CompiledEmail> {
+        LocaleTemplates() {
+            super(MailTemplateKind.class);
+        }
+    }
+
+    private record CompiledEmail(MailTemplate subject, MailTemplate text, MailTemplate html) {
+        RenderedEmail render(Object[] args) {
+            return new RenderedEmail(subject.render(args), text.render(args), html.render(args));
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ResponseDigest;
+import com.example.demo.dto.RenderedEmail;
+import com.example.demo.dto.ResponseNotificationEvent;
+import com.example.demo.template.MailTemplateKind;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Дайджест откликов для работодателя: отклики на одну вакансию для одного получателя копятся
+// до notification.digest.window (или до max-size откликов) и уходят одним письмом, а не письмом на отклик.
+// Накопленное живёт в памяти, а копия - в хэше Redis: она пишется до коммита offset'ов пачки
+// и читается при старте, поэтому перезапуск не теряет ещё не отправленные дайджесты.
+// Дайджест, который не удалось отправить, остаётся в checkpoint'е и повторяется с задержками notification.retry.*
+// (DeliveryRetryService); после последней попытки или при постоянной ошибке его отклики уходят в DLT.
+@Slf4j
+@Service
+public class ResponseDigestService {
+
+    private final MailDeliveryEngine mailDeliveryEngine;
+    private final MailTemplateService mailTemplateService;
+    private final DeliveryRetryService deliveryRetryService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxSize;
+    private final String checkpointKey;
+
+    private final Map<String, ResponseDigest> pending = new HashMap<>();
+    private volatile boolean restored;
+
+    @Autowired
+    public ResponseDigestService(MailDeliveryEngine mailDeliveryEngine,
+                                 MailTemplateService mailTemplateService,
+                                 DeliveryRetryService deliveryRetryService,
+                                 StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Value("${notification.digest.enabled:true}") boolean enabled,
+                                 @Value("${notification.digest.window:15m}") Duration window,
+                                 @Value("${notification.digest.max-size:100}") int maxSize,
+                                 @Value("${notification.digest.checkpoint-key:notification:response-digest}") String checkpointKey) {
+        this.mailDeliveryEngine = mailDeliveryEngine;
+        this.mailTemplateService = mailTemplateService;
+        this.deliveryRetryService = deliveryRetryService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxSize = maxSize;
+        this.checkpointKey = checkpointKey;
+    }
+
+    // Отклики пачки добавляются в дайджесты и одним HSET пишутся в checkpoint; future на каждый отклик, в том же порядке.
+    // Redis недоступен - исключение, EmailService отправит отклики пачки на повтор.
+    // Дайджесты выключены - письмо на каждый отклик, неудачные EmailService повторит по одному.
+    public List<CompletableFuture<Void>> addAll(List<ResponseNotificationEvent> events) {
+        if (!enabled) {
+            List<CompletableFuture<Void>> sent = new ArrayList<>(events.size());
+            for (ResponseNotificationEvent event : events) {
+                try {
+                    sent.add(sendMsgAboutResponse(event.getUsername(), event.getResponse(), event.getEmail(),
+                            event.getLocale()));
+                } catch (RuntimeException e) {
+                    sent.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            return sent;
+        }
+        Map<String, String> touched = new HashMap<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (ResponseNotificationEvent event : events) {
+                ResponseDigest digest = pending.computeIfAbsent(
+                        ResponseDigest.key(event.getEmail(), event.getVacancyId(), event.getResponse()),
+                        key -> new ResponseDigest(event.getEmail(), event.getVacancyId(), event.getResponse(), now,
+                                event.getLocale()));
+                digest.getUsernames().add(event.getUsername());
+                touched.put(digest.field(), toJson(digest));
+            }
+        }
+        if (!touched.isEmpty()) {
+            hash().putAll(checkpointKey, touched);
+        }
+        return Collections.nCopies(events.size(), CompletableFuture.completedFuture(null));
+    }
+
+    // отправляет дайджесты, у которых истекло окно, набралось max-size откликов или подошло время повтора
+    @Scheduled(fixedDelayString = "${notification.digest.flush-interval:10s}")
+    public void flushDue() {
+        if (!enabled) {
+            return;
+        }
+        if (!restored) {
+            restore();
+        }
+        long now = System.currentTimeMillis();
+        List<ResponseDigest> due = new ArrayList<>();
+        synchronized (this) {
+            Iterator<ResponseDigest> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                ResponseDigest digest = iterator.next();
+                if (isDue(digest, now)) {
+                    due.add(digest);
+                    iterator.remove();
+                }
+            }
+        }
+        for (ResponseDigest digest : due) {
+            // checkpoint удаляется только после отправки: при недоступном SMTP дайджест не теряется
+            send(digest).whenComplete((result, e) -> {
+                if (e == null) {
+                    removeCheckpoint(digest);
+                } else {
+                    failed(digest, e);
+                }
+            });
+        }
+        if (!due.isEmpty()) {
+            log.info("flushed {} response digests, {} pending", due.size(), pendingCount());
+        }
+    }
+
+    private boolean isDue(ResponseDigest digest, long now) {
+        if (digest.getAttempts() > 0) {
+            return now >= digest.getRetryAt();
+        }
+        return now - digest.getFirstAt() >= window.toMillis() || digest.getUsernames().size() >= maxSize;
+    }
+
+    private void failed(ResponseDigest digest, Throwable error) {
+        Throwable cause = DeliveryRetryService.unwrap(error);
+        int attempt = digest.getAttempts();
+        if (DeliveryRetryService.isPermanent(cause) || attempt >= deliveryRetryService.tiers()) {
+            deadLetter(digest, cause);
+            return;
+        }
+        Duration delay = deliveryRetryService.backoff(attempt);
+        log.info("response digest for {} ({}): retry {} in {}: {}", digest.getEmail(), digest.getResponse(),
+                attempt + 1, delay, cause.toString());
+        digest.setAttempts(attempt + 1);
+        digest.setRetryAt(System.currentTimeMillis() + delay.toMillis());
+        requeue(digest);
+    }
+
+    // Отклики дайджеста - в DLT отдельными событиями response-notifications: replay вернёт их в дайджесты.
+    // Пока DLT не подтвердил запись, дайджест остаётся в checkpoint'е и повторяется с последней задержкой.
+    private void deadLetter(ResponseDigest digest, Throwable cause) {
+        String key = digest.getVacancyId() != null ? digest.getVacancyId().toString() : null;
+        List<CompletableFuture<Void>> published = new ArrayList<>(digest.getUsernames().size());
+        for (String username : digest.getUsernames()) {
+            ResponseNotificationEvent event = new ResponseNotificationEvent(username, digest.getVacancyId(),
+                    digest.getResponse(), digest.getEmail(), digest.getLocale());
+            try {
+                published.add(deliveryRetryService.deadLetter(EmailService.TOPIC_RESPONSE, key, toJson(event),
+                        digest.getAttempts(), cause));
+            } catch (RuntimeException e) {
+                published.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        CompletableFuture.allOf(published.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+            if (e == null) {
+                removeCheckpoint(digest);
+                return;
+            }
+            log.warn("failed to move response digest for {} to DLT: {}", digest.getEmail(), e.toString());
+            Duration delay = deliveryRetryService.tiers() == 0
+                    ? window : deliveryRetryService.backoff(deliveryRetryService.tiers() - 1);
+            digest.setRetryAt(System.currentTimeMillis() + delay.toMillis());
+            requeue(digest);
+        });
+    }
+
+    // Возвращает дайджест в pending и переписывает его в checkpoint'е (там он не удалялся).
+    // Пока он отправлялся, по тому же ключу могло начаться новое окно - оно сливается в более раннее.
+    private void requeue(ResponseDigest digest) {
+        Map<String, String> rewritten = new HashMap<>();
+        String stale;
+        synchronized (this) {
+            stale = putPending(digest, rewritten);
+            ResponseDigest current = pending.get(digest.key());
+            rewritten.put(current.field(), toJson(current));
+        }
+        try {
+            hash().putAll(checkpointKey, rewritten);
+            if (stale != null) {
+                hash().delete(checkpointKey, stale);
+            }
+        } catch (DataAccessException e) {
+            // в памяти дайджест есть; в Redis остаётся прежняя запись и после перезапуска он уйдёт повторно
+            log.warn("failed to checkpoint requeued response digest: {}", e.getMessage());
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // Поднимает дайджесты из checkpoint'а. Пока Redis недоступен, повторяется на каждом flushDue.
+    @PostConstruct
+    public void restore() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            restoreCheckpoint();
+            restored = true;
+        } catch (DataAccessException e) {
+            log.warn("response digest checkpoint is unavailable, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void restoreCheckpoint() {
+        Map<String, String> saved = hash().entries(checkpointKey);
+        Map<String, String> rewritten = new HashMap<>();
+        List<String> stale = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, String> entry : saved.entrySet()) {
+                ResponseDigest digest = fromJson(entry.getValue());
+                if (digest == null) {
+                    stale.add(entry.getKey());
+                    continue;
+                }
+                // отклики успели прийти до чтения checkpoint'а
+                String merged = putPending(digest, rewritten);
+                if (merged != null) {
+                    stale.add(merged);
+                }
+            }
+        }
+        if (!rewritten.isEmpty()) {
+            hash().putAll(checkpointKey, rewritten);
+        }
+        if (!stale.isEmpty()) {
+            hash().delete(checkpointKey, stale.toArray());
+        }
+        if (!saved.isEmpty()) {
+            log.info("restored {} response digests from checkpoint", saved.size() - stale.size());
+        }
+    }
+
+    // Кладёт дайджест в pending. Если там другое окно того же ключа, сливает их в более раннее
+    // и возвращает поле checkpoint'а более позднего - его нужно удалить.
+    private String putPending(ResponseDigest digest, Map<String, String> rewritten) {
+        ResponseDigest current = pending.get(digest.key());
+        if (current == null) {
+            pending.put(digest.key(), digest);
+            return null;
+        }
+        if (current.field().equals(digest.field())) {
+            current.getUsernames().addAll(digest.getUsernames());
+            return null;
+        }
+        ResponseDigest earlier = current.getFirstAt() <= digest.getFirstAt() ? current : digest;
+        ResponseDigest later = earlier == current ? digest : current;
+        earlier.getUsernames().addAll(later.getUsernames());
+        pending.put(earlier.key(), earlier);
+        rewritten.put(earlier.field(), toJson(earlier));
+        return later.field();
+    }
+
+    private CompletableFuture<Void> send(ResponseDigest digest) {
+        if (digest.getUsernames().size() == 1) {
+            return sendMsgAboutResponse(digest.getUsernames().iterator().next(), digest.getResponse(), digest.getEmail(),
+                    digest.getLocale());
+        }
+        RenderedEmail rendered = mailTemplateService.render(MailTemplateKind.RESPONSE_DIGEST, digest.getLocale(),
+                digest.getResponse(), digest.getUsernames().size(), digest.getUsernames());
+        return mailDeliveryEngine.submit(message(digest.getEmail(), rendered), rendered.getHtml());
+    }
+
+    public CompletableFuture<Void> sendMsgAboutResponse(String username, String responseName, String to, String locale) {
+        RenderedEmail rendered = mailTemplateService.render(MailTemplateKind.RESPONSE, locale, responseName, username);
+        return mailDeliveryEngine.submit(message(to, rendered), rendered.getHtml());
+    }
+
+    private static SimpleMailMessage message(String to, RenderedEmail rendered) {
+        SimpleMailMessage email = new SimpleMailMessage();
+        email.setTo(to);
+        email.setSubject(rendered.getSubject());
+        email.setText(rendered.getText());
+        return email;
+    }
+
+    private void removeCheckpoint(ResponseDigest digest) {
+        try {
+            hash().delete(checkpointKey, digest.field());
+        } catch (DataAccessException e) {
+            // останется в Redis и после перезапуска уйдёт повторно
+            log.warn("failed to remove sent response digest from checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redisTemplate.opsForHash();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResponseDigest fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, ResponseDigest.class);
+        } catch (JsonProcessingException e) {
+            log.error("Некорректный дайджест в checkpoint'е: {}", json, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// По контейнеру (и consumer'у) на каждый retry-топик: у всех записей уровня одинаковая задержка,
+// поэтому они лежат в порядке времени повтора и consumer просто ждёт первую ещё не созревшую запись.
+// Ожидание - nack со sleep: пауза только этого consumer'а, основные листенеры и другие уровни читают дальше.
+@Slf4j
+@Component
+public class RetryTierConsumers implements SmartLifecycle {
+
+    private static final String GROUP = "notification-retry";
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final DeliveryRetryService deliveryRetryService;
+    private final EmailService emailService;
+
+    private final List<ConcurrentMessageListenerContainer<?, ?>> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public RetryTierConsumers(ConsumerFactory<?, ?> consumerFactory,
+                              DeliveryRetryService deliveryRetryService,
+                              EmailService emailService) {
+        this.consumerFactory = consumerFactory;
+        this.deliveryRetryService = deliveryRetryService;
+        this.emailService = emailService;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void start() {
+        for (int tier = 0; tier < deliveryRetryService.tiers(); tier++) {
+            String topic = deliveryRetryService.retryTopic(tier);
+            ContainerProperties properties = new ContainerProperties(topic);
+            properties.setGroupId(GROUP);
+            properties.setAckMode(ContainerProperties.AckMode.MANUAL);
+            // записи, опубликованные до первого подключения группы, тоже нужно повторить
+            properties.setKafkaConsumerProperties(consumerProperties());
+            properties.setMessageListener((BatchAcknowledgingMessageListener<String, String>) this::onRetry);
+            ConcurrentMessageListenerContainer<?, ?> container =
+                    new ConcurrentMessageListenerContainer(consumerFactory, properties);
+            container.setBeanName("email-retry-" + tier);
+            container.start();
+            containers.add(container);
+        }
+        running = true;
+        log.info("retry consumers started for {} tiers", containers.size());
+    }
+
+    @Override
+    public void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        containers.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // вместе с Kafka-листенерами: позже MailDeliveryEngine стартуют и раньше него останавливаются
+    @Override
+    public int getPhase() {
+        return KafkaListenerEndpointRegistry.DEFAULT_PHASE;
+    }
+
+    private static Properties consumerProperties() {
+        Properties properties = new Properties();
+        properties.put("auto.offset.reset", "earliest");
+        return properties;
+    }
+
+    private void onRetry(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        long now = System.currentTimeMillis();
+        int due = 0;
+        while (due < records.size() && deliveryRetryService.dueAt(records.get(due)) <= now) {
+            due++;
+        }
+        if (due > 0) {
+            emailService.redeliver(records.subList(0, due));
+        }
+        if (due == records.size()) {
+            acknowledgment.acknowledge();
+        } else {
+            // обработанные коммитятся, остальные будут прочитаны снова после паузы
+            acknowledgment.nack(due, Duration.ofMillis(deliveryRetryService.dueAt(records.get(due)) - now));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.demo.template;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Шаблон письма, разобранный один раз: литералы и ссылки на аргументы по позиции, без поиска по имени при отрисовке.
+// {{name}} - аргумент, {{#name}}...{{/name}} - тело для каждого элемента аргумента-Iterable, {{.}} - текущий элемент.
+// В html-шаблонах значения экранируются прямо в выходной буфер.
+public final class MailTemplate {
+
+    private final Segment[] segments;
+
+    private MailTemplate(Segment[] segments) {
+        this.segments = segments;
+    }
+
+    // params - имена аргументов по позициям; неизвестное имя или незакрытая секция - ошибка при компиляции, а не при отправке
+    public static MailTemplate compile(String source, List<String> params, boolean html) {
+        Deque<List<Segment>> open = new ArrayDeque<>();
+        Deque<Integer> sections = new ArrayDeque<>();
+        List<Segment> current = new ArrayList<>();
+        int pos = 0;
+        while (pos < source.length()) {
+            int start = source.indexOf("{{", pos);
+            if (start < 0) {
+                start = source.length();
+            }
+            if (start > pos) {
+                current.add(new Literal(source.substring(pos, start).toCharArray()));
+            }
+            if (start == source.length()) {
+                break;
+            }
+            int end = source.indexOf("}}", start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Незакрытый тег в позиции " + start);
+            }
+            String tag = source.substring(start + 2, end).trim();
+            if (tag.startsWith("#")) {
+                sections.push(index(tag.substring(1), params));
+                open.push(current);
+                current = new ArrayList<>();
+            } else if (tag.startsWith("/")) {
+                int index = index(tag.substring(1), params);
+                if (sections.isEmpty() || sections.peek() != index) {
+                    throw new IllegalArgumentException("Лишний тег {{" + tag + "}}");
+                }
+                Section section = new Section(sections.pop(), current.toArray(new Segment[0]));
+                current = open.pop();
+                current.add(section);
+            } else if (tag.equals(".")) {
+                if (sections.isEmpty()) {
+                    throw new IllegalArgumentException("{{.}} вне секции");
+                }
+                current.add(new Item(html));
+            } else {
+                current.add(new Arg(index(tag, params), html));
+            }
+            pos = end + 2;
+        }
+        if (!sections.isEmpty()) {
+            throw new IllegalArgumentException("Незакрытая секция {{#" + params.get(sections.peek()) + "}}");
+        }
+        return new MailTemplate(current.toArray(new Segment[0]));
+    }
+
+    // Два прохода: точная длина, затем запись в char[] этой длины. В отличие от StringBuilder нет ни расширений
+    // буфера, ни перехода из Latin-1 в UTF-16 на первой кириллической букве, ни копии в toString.
+    public String render(Object... args) {
+        int length = 0;
+        for (Segment segment : segments) {
+            length += segment.length(args, null);
+        }
+        char[] out = new char[length];
+        int pos = 0;
+        for (Segment segment : segments) {
+            pos = segment.write(out, pos, args, null);
+        }
+        return new String(out);
+    }
+
+    private static int index(String name, List<String> params) {
+        int index = params.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Неизвестный параметр {{" + name + "}}, ожидаются " + params);
+        }
+        return index;
+    }
+
+    private static int length(Object value, boolean html) {
+        if (value instanceof Integer number) {
+            return digits(number);
+        }
+        CharSequence text = text(value);
+        if (!html) {
+            return text.length();
+        }
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            String escaped = escape(text.charAt(i));
+            if (escaped != null) {
+                length += escaped.length() - 1;
+            }
+        }
+        return length;
+    }
+
+    private static int write(char[] out, int pos, Object value, boolean html) {
+        if (value instanceof Integer number) {
+            int n = number;
+            int end = pos + digits(n);
+            long rest = Math.abs((long) n);
+            int i = end;
+            do {
+                out[--i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            } while (rest > 0);
+            if (n < 0) {
+                out[pos] = '-';
+            }
+            return end;
+        }
+        CharSequence text = text(value);
+        if (!html && text instanceof String string) {
+            string.getChars(0, string.length(), out, pos);
+            return pos + string.length();
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String escaped = html ? escape(c) : null;
+            if (escaped == null) {
+                out[pos++] = c;
+            } else {
+                escaped.getChars(0, escaped.length(), out, pos);
+                pos += escaped.length();
+            }
+        }
+        return pos;
+    }
+
+    private static CharSequence text(Object value) {
+        return value instanceof CharSequence text ? text : String.valueOf(value);
+    }
+
+    private static int digits(int n) {
+        long rest = Math.abs((long) n);
+        int digits = n < 0 ? 2 : 1;
+        while (rest >= 10) {
+            rest /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static String escape(char c) {
+        return switch (c) {
+            case '&' -> "&amp;";
+            case '<' -> "&lt;";
+            case '>' -> "&gt;";
+            case '"' -> "&quot;";
+            case '\'' -> "&#39;";
+            default -> null;
+        };
+    }
+
+    private interface Segment {
+        int length(Object[] args, Object item);
+
+        int write(char[] out, int pos, Object[] args, Object item);
+    }
+
+    private record Literal(char[] text) implements Segment {
+        @Override
+        public int length(Object[] args, Object item) {
+            return text.length;
+        }
+
+        @Override
+        public int write(char[] out, int pos, Object[] args, Object item) {
+            System.arraycopy(text, 0, out, pos, text.length);
+            return pos + text.length;
+        }
+    }
+
+    private record Arg(int index, boolean html) implements Segment {
+        @Override
+        public int length(Object[] args, Object item) {
+            return MailTemplate.length(args[index], html);
+        }
+
+        @Override
+        public int write(char[] out, int pos, Object[] args, Object item) {
+            return MailTemplate.write(out, pos, args[index], html);
+        }
+    }
+
+    private record Item(boolean html) implements Segment {
+        @Override
+        public int length(Object[] args, Object item) {
+            return MailTemplate.length(item, html);
+        }
+
+        @Override
+        public int write(char[] out, int pos, Object[] args, Object item) {
+            return MailTemplate.write(out, pos, item, html);
+        }
+    }
+
+    private record Section(int index, Segment[] body) implements Segment {
+        @Override
+        public int length(Object[] args, Object item) {
+            int length = 0;
+            for (Object element : (Iterable<?>) args[index]) {
+                for (Segment segment : body) {
+                    length += segment.length(args, element);
+                }
+            }
+            return length;
+        }
+
+        @Override
+        public int write(char[] out, int pos, Object[] args, Object item) {
+            for (Object element : (Iterable<?>) args[index]) {
+                for (Segment segment : body) {
+                    pos = segment.write(out, pos, args, element);
+                }
+            }
+            return pos;
+        }
+    }
+}
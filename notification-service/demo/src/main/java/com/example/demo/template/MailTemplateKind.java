@@ -0,0 +1,29 @@
+package com.example.demo.template;
+
+import java.util.List;
+
+// Виды писем: имя файлов шаблона (mail-templates/<язык>/<name>.txt, .html и ключ в subjects.properties)
+// и имена аргументов в порядке, в котором их передаёт MailTemplateService.render
+public enum MailTemplateKind {
+    VERIFICATION("verification", "url"),
+    PASSWORD_RESET("password-reset", "url"),
+    EMAIL_CHANGE("email-change", "url"),
+    RESPONSE("response", "vacancy", "candidate"),
+    RESPONSE_DIGEST("response-digest", "vacancy", "count", "candidates");
+
+    private final String fileName;
+    private final List<String> params;
+
+    MailTemplateKind(String fileName, String... params) {
+        this.fileName = fileName;
+        this.params = List.of(params);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public List<String> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo;
+
+import com.example.demo.config.DeadLetterEndpoint;
+import com.example.demo.service.DeliveryRetryService;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Недоставленное письмо (и отклик без дайджеста) проходит retry-топики и попадает в DLT, не задерживая основной consumer;
+// после восстановления SMTP возвращается из DLT через /actuator/dlt и доставляется.
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.mail.host=localhost",
+        // SMTP-сервер поднимается только в середине теста
+        "spring.mail.port=3026",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false",
+        "spring.mail.properties.mail.debug=false",
+        "mail.delivery.reconnect-backoff=100ms",
+        "notification.retry.initial-interval=300ms",
+        "notification.retry.multiplier=2",
+        "notification.retry.attempts=2",
+        "notification.digest.enabled=false"
+})
+@EmbeddedKafka(partitions = 1, topics = {"user-registration", "user-change-event", "user-forgot-event", "response-notifications"})
+class DeliveryRetryTest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private DeadLetterEndpoint deadLetterEndpoint;
+
+    @Test
+    void failedDeliveryIsRetriedThenDeadLetteredAndReplayed() throws Exception {
+        kafkaTemplate.send("user-registration", "{\"login\":\"retry@localhost\",\"token\":\"t1\"}");
+        kafkaTemplate.send("response-notifications", "7",
+                "{\"username\":\"applicant@localhost\",\"response\":\"java developer\",\"email\":\"hr@localhost\"}");
+        kafkaTemplate.flush();
+
+        ConsumerRecord<String, String> dead = awaitDeadLetter("retry@localhost");
+        assertEquals("user-registration", header(dead, DeliveryRetryService.HEADER_ORIGINAL_TOPIC));
+        assertEquals("2", header(dead, DeliveryRetryService.HEADER_ATTEMPT));
+        ConsumerRecord<String, String> deadResponse = awaitDeadLetter("hr@localhost");
+        assertEquals("response-notifications", header(deadResponse, DeliveryRetryService.HEADER_ORIGINAL_TOPIC));
+        assertEquals("2", header(deadResponse, DeliveryRetryService.HEADER_ATTEMPT));
+        assertTrue(((Number) deadLetterEndpoint.backlog().get("pending")).longValue() >= 2);
+
+        GreenMail greenMail = new GreenMail(new ServerSetup(3026, null, ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+        try {
+            Map<String, Object> replayed = deadLetterEndpoint.replay(10);
+            assertTrue(((Map<?, ?>) replayed.get("topics")).containsKey("user-registration"));
+            assertTrue(((Map<?, ?>) replayed.get("topics")).containsKey("response-notifications"));
+
+            assertTrue(greenMail.waitForIncomingEmail(20_000, 2));
+            Set<String> recipients = new HashSet<>();
+            for (MimeMessage message : greenMail.getReceivedMessages()) {
+                recipients.add(message.getAllRecipients()[0].toString());
+            }
+            assertEquals(Set.of("retry@localhost", "hr@localhost"), recipients);
+        } finally {
+            greenMail.stop();
+        }
+    }
+
+    @Test
+    void malformedEventGoesStraightToDeadLetter() {
+        kafkaTemplate.send("user-forgot-event", "{\"login\":");
+        kafkaTemplate.flush();
+
+        ConsumerRecord<String, String> dead = awaitDeadLetter("{\"login\":");
+        assertEquals("user-forgot-event", header(dead, DeliveryRetryService.HEADER_ORIGINAL_TOPIC));
+        assertEquals("0", header(dead, DeliveryRetryService.HEADER_ATTEMPT));
+    }
+
+    // запись DLT, значение которой содержит text; каждый раз читается с начала топика
+    private ConsumerRecord<String, String> awaitDeadLetter(String text) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-test-" + UUID.randomUUID(), "false", broker);
+        props.put("auto.offset.reset", "earliest");
+        // ключ отклика - id вакансии строкой
+        props.put("key.deserializer", StringDeserializer.class);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<String, String>(props).createConsumer()) {
+            consumer.subscribe(List.of("notification-dlt"));
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    if (record.value().contains(text)) {
+                        return record;
+                    }
+                }
+            }
+        }
+        throw new AssertionError("no dead letter with " + text);
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
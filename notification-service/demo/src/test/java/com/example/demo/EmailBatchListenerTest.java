@@ -0,0 +1,98 @@
+package com.example.demo;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Пачка событий из Kafka превращается в письма, offset'ы коммитятся после отправки, лаг топика виден в метриках.
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false",
+        "spring.mail.properties.mail.debug=false",
+        // отклики по одному, без дайджеста в Redis - его проверяет ResponseDigestServiceTest
+        "notification.digest.enabled=false"
+})
+@EmbeddedKafka(partitions = 2, topics = {"user-registration", "user-change-event", "user-forgot-event", "response-notifications"})
+class EmailBatchListenerTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void registrationBatchIsDeliveredThenCommitted() throws Exception {
+        int events = 30;
+        for (int i = 0; i < events; i++) {
+            kafkaTemplate.send("user-registration", "{\"login\":\"user" + i + "@localhost\",\"token\":\"t" + i + "\"}");
+        }
+        // битое событие уходит в DLT и не держит пачку
+        kafkaTemplate.send("user-registration", "not json");
+        kafkaTemplate.flush();
+
+        assertTrue(greenMail.waitForIncomingEmail(20_000, events));
+        assertEquals(events, greenMail.getReceivedMessages().length);
+        assertEquals(events + 1, awaitCommitted("registration-group", events + 1));
+        assertEquals(0, meterRegistry.get("notification.consumer.lag").tag("topic", "user-registration").gauge().value());
+    }
+
+    @Test
+    void responseNotificationIsSentToEmployer() throws Exception {
+        kafkaTemplate.send("response-notifications",
+                "{\"username\":\"applicant@localhost\",\"response\":\"java developer\",\"email\":\"hr@localhost\"}");
+
+        assertTrue(greenMail.waitForIncomingEmail(20_000, 1));
+        MimeMessage message = greenMail.getReceivedMessages()[0];
+        assertEquals("hr@localhost", message.getAllRecipients()[0].toString());
+        assertEquals("Новый отклик на вакансию java developer", message.getSubject());
+        // текст и HTML-версия из шаблона
+        assertTrue(message.getContentType().startsWith("multipart/alternative"), message.getContentType());
+    }
+
+    // сумма закоммиченных offset'ов группы по всем партициям; коммит идёт сразу после возврата из листенера
+    private long awaitCommitted(String group, long expected) throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            long committed = 0;
+            for (int i = 0; i < 100 && committed < expected; i++) {
+                Map<TopicPartition, OffsetAndMetadata> offsets = admin.listConsumerGroupOffsets(group)
+                        .partitionsToOffsetAndMetadata().get();
+                committed = offsets.values().stream().mapToLong(OffsetAndMetadata::offset).sum();
+                if (committed < expected) {
+                    Thread.sleep(200);
+                }
+            }
+            return committed;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import com.example.demo.service.ConsumerLagMetrics;
+import com.example.demo.service.DeliveryRetryService;
+import com.example.demo.service.EmailService;
+import com.example.demo.service.MailDeliveryEngine;
+import com.example.demo.service.MailTemplateService;
+import com.example.demo.service.ResponseDigestService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Письма, не отправленные за notification.batch.delivery-timeout, уходят в retry-топик, а пачка не перечитывается:
+// иначе её письма, ещё ждущие в очереди MailDeliveryEngine, встали бы туда второй раз.
+class EmailBatchTimeoutTest {
+
+    private final MailDeliveryEngine mailDeliveryEngine = mock(MailDeliveryEngine.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    void undeliveredEmailsAreMovedToRetryOnTimeout() {
+        CompletableFuture<Void> stuck = new CompletableFuture<>();
+        when(mailDeliveryEngine.submit(argThat(to("fast@localhost")), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(mailDeliveryEngine.submit(argThat(to("slow@localhost")), any())).thenReturn(stuck);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        emailService(Duration.ofMillis(200)).redeliver(List.of(
+                record(0, "{\"login\":\"fast@localhost\",\"token\":\"t0\"}"),
+                record(1, "{\"login\":\"slow@localhost\",\"token\":\"t1\"}")));
+
+        // MailDeliveryEngine пропускает завершённое письмо, когда доходит до него в очереди
+        assertTrue(stuck.isCompletedExceptionally());
+        verify(mailDeliveryEngine, times(2)).submit(any(), any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, String>> retried = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(retried.capture());
+        assertEquals("notification-retry-0", retried.getValue().topic());
+        assertTrue(retried.getValue().value().contains("slow@localhost"));
+        assertTrue(new String(retried.getValue().headers().lastHeader(DeliveryRetryService.HEADER_ERROR).value(),
+                StandardCharsets.UTF_8).startsWith(TimeoutException.class.getName()));
+    }
+
+    private EmailService emailService(Duration batchTimeout) {
+        MailTemplateService templates = new MailTemplateService(new DefaultResourceLoader(), "classpath:mail-templates/",
+                "ru", List.of("ru"));
+        templates.precompile();
+        DeliveryRetryService retries = new DeliveryRetryService(kafkaTemplate, mock(ConsumerFactory.class),
+                "notification-retry-", "notification-dlt", Duration.ofMinutes(1), 5, 3);
+        return new EmailService(mailDeliveryEngine, new ObjectMapper(), new ConsumerLagMetrics(new SimpleMeterRegistry()),
+                mock(ResponseDigestService.class), retries, templates, "http://localhost:3000", batchTimeout);
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        return new ConsumerRecord<>(EmailService.TOPIC_REGISTRATION, 0, offset, null, value);
+    }
+
+    private static ArgumentMatcher<SimpleMailMessage> to(String address) {
+        return message -> message != null && message.getTo() != null && address.equals(message.getTo()[0]);
+    }
+}
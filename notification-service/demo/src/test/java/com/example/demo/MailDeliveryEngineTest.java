@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import com.example.demo.service.MailDeliveryEngine;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Письма уходят пачками через постоянные соединения к локальному SMTP (GreenMail), а не по соединению на письмо.
+class MailDeliveryEngineTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MailDeliveryEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null && engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void messagesShareConnections() throws Exception {
+        engine = engine(2, 100);
+        engine.start();
+        for (int i = 0; i < 40; i++) {
+            engine.submit(message(i));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 40));
+        engine.stop();
+        assertEquals(40, sum("mail.delivery.sent"));
+        assertEquals(0, sum("mail.delivery.failed"));
+        // одно подключение на поток, а не на письмо
+        assertTrue(sum("mail.delivery.connections.opened") <= 2);
+    }
+
+    @Test
+    void connectionIsRenewedAfterMessageLimit() throws Exception {
+        engine = engine(1, 5);
+        engine.start();
+        for (int i = 0; i < 20; i++) {
+            engine.submit(message(i));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 20));
+        engine.stop();
+        assertEquals(4, sum("mail.delivery.connections.opened"));
+        assertEquals(20, meterRegistry.get("mail.delivery.sent").tag("connection", "smtp-0").counter().count());
+    }
+
+    @Test
+    void stopDrainsQueue() {
+        engine = engine(1, 100);
+        for (int i = 0; i < 30; i++) {
+            engine.submit(message(i));
+        }
+        engine.start();
+        engine.stop();
+
+        assertEquals(30, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void abandonedMessageIsNotSent() {
+        engine = engine(1, 100);
+        engine.submit(message(0));
+        // EmailService отдал запись на повтор, пока письмо ждало в очереди
+        engine.submit(message(1)).completeExceptionally(new TimeoutException());
+        engine.submit(message(2));
+        engine.start();
+        engine.stop();
+
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        assertEquals(2, sum("mail.delivery.sent"));
+    }
+
+    private MailDeliveryEngine engine(int poolSize, int maxMessagesPerConnection) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        return new MailDeliveryEngine(mailSender, meterRegistry, poolSize, 100, 10, maxMessagesPerConnection,
+                Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(10));
+    }
+
+    private SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@localhost");
+        message.setTo("user" + i + "@localhost");
+        message.setSubject("Подтверждение email");
+        message.setText("token " + i);
+        return message;
+    }
+
+    private double sum(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import com.example.demo.dto.RenderedEmail;
+import com.example.demo.service.MailTemplateService;
+import com.example.demo.template.MailTemplate;
+import com.example.demo.template.MailTemplateKind;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Шаблоны компилируются при старте, письмо выбирается по языку события, значения в HTML экранируются.
+public class MailTemplateServiceTest {
+
+    private static MailTemplateService templates;
+
+    @BeforeAll
+    static void setUp() {
+        templates = new MailTemplateService(new DefaultResourceLoader(), "classpath:mail-templates/", "ru",
+                List.of("ru", "en"));
+        templates.precompile();
+    }
+
+    @Test
+    void verificationIsRenderedAsTextAndHtml() {
+        RenderedEmail email = templates.render(MailTemplateKind.VERIFICATION, null, "http://localhost:3000/auth/confirm?token=t1&x=1");
+
+        assertEquals("Подтверждение email", email.getSubject());
+        assertTrue(email.getText().contains("перейдите по ссылке:\nhttp://localhost:3000/auth/confirm?token=t1&x=1\n"));
+        assertTrue(email.getHtml().contains("<a href=\"http://localhost:3000/auth/confirm?token=t1&amp;x=1\">"));
+    }
+
+    @Test
+    void localeFallsBackToLanguageThenDefault() {
+        assertEquals("Password reset", templates.render(MailTemplateKind.PASSWORD_RESET, "en-US", "u").getSubject());
+        assertEquals("Password reset", templates.render(MailTemplateKind.PASSWORD_RESET, "en_GB", "u").getSubject());
+        assertEquals("Восстановление пароля", templates.render(MailTemplateKind.PASSWORD_RESET, "de", "u").getSubject());
+    }
+
+    @Test
+    void digestListsEveryCandidateAndEscapesHtml() {
+        RenderedEmail email = templates.render(MailTemplateKind.RESPONSE_DIGEST, "ru", "<b>java</b>", 2,
+                Set.of("a@mail.ru"));
+
+        assertEquals("Новые отклики на вакансию <b>java</b>: 2", email.getSubject());
+        assertTrue(email.getText().contains("📧 Email: a@mail.ru\n"));
+        assertTrue(email.getHtml().contains("«&lt;b&gt;java&lt;/b&gt;»"));
+        assertTrue(email.getHtml().contains("<li>📧 Email: <a href=\"mailto:a@mail.ru\">a@mail.ru</a></li>"));
+    }
+
+    @Test
+    void brokenTemplateFailsAtCompileTime() {
+        List<String> params = MailTemplateKind.RESPONSE_DIGEST.getParams();
+        assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("{{unknown}}", params, false));
+        assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("{{#candidates}}{{.}}", params, false));
+        assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("{{.}}", params, false));
+        assertEquals("a, b, ", MailTemplate.compile("{{#candidates}}{{.}}, {{/candidates}}", params, false)
+                .render("v", 2, List.of("a", "b")));
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.demo;
+
+import com.example.demo.dto.ResponseNotificationEvent;
+import com.example.demo.service.DeliveryRetryService;
+import com.example.demo.service.EmailService;
+import com.example.demo.service.MailDeliveryEngine;
+import com.example.demo.service.MailTemplateService;
+import com.example.demo.service.ResponseDigestService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Отклики на одну вакансию уходят работодателю одним письмом; недоотправленные дайджесты переживают перезапуск.
+@Testcontainers
+public class ResponseDigestServiceTest {
+
+    private static final String KEY = "notification:response-digest";
+
+    @Container
+    private static final GenericContainer<?> redis = new GenericContainer<>("redis:7").withExposedPorts(6379);
+
+    private final MailDeliveryEngine mailDeliveryEngine = mock(MailDeliveryEngine.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.delete(KEY);
+        when(mailDeliveryEngine.submit(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void responsesAreCollectedIntoOneEmail() {
+        ResponseDigestService digests = digests(Duration.ofMillis(0), 100);
+        digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("c@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("d@mail.ru", 2L, "tester", "hr@company.ru")));
+
+        digests.flushDue();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailDeliveryEngine, times(2)).submit(sent.capture(), any());
+        SimpleMailMessage digest = sent.getAllValues().stream()
+                .filter(m -> m.getSubject().contains("java developer")).findFirst().orElseThrow();
+        assertEquals("Новые отклики на вакансию java developer: 3", digest.getSubject());
+        assertTrue(digest.getText().contains("a@mail.ru") && digest.getText().contains("c@mail.ru"));
+        SimpleMailMessage single = sent.getAllValues().stream()
+                .filter(m -> m.getSubject().contains("tester")).findFirst().orElseThrow();
+        assertEquals("Новый отклик на вакансию tester", single.getSubject());
+        assertEquals(0, redisTemplate.opsForHash().size(KEY));
+    }
+
+    @Test
+    void sameNamedVacanciesAreDigestedSeparately() {
+        ResponseDigestService digests = digests(Duration.ofMillis(0), 100);
+        digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 3L, "java developer", "hr@company.ru")));
+
+        digests.flushDue();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailDeliveryEngine, times(2)).submit(sent.capture(), any());
+        assertTrue(sent.getAllValues().stream()
+                .allMatch(m -> m.getSubject().equals("Новый отклик на вакансию java developer")));
+    }
+
+    @Test
+    void digestWaitsForWindowOrSizeCap() {
+        ResponseDigestService digests = digests(Duration.ofHours(1), 3);
+        digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru")));
+
+        digests.flushDue();
+        verify(mailDeliveryEngine, never()).submit(any(), any());
+
+        digests.addAll(List.of(event("c@mail.ru", 1L, "java developer", "hr@company.ru")));
+        digests.flushDue();
+        verify(mailDeliveryEngine, times(1)).submit(any(), any());
+        assertEquals(0, digests.pendingCount());
+    }
+
+    @Test
+    void redeliveredBatchDoesNotDuplicateCandidates() {
+        ResponseDigestService digests = digests(Duration.ofHours(1), 2);
+        List<ResponseNotificationEvent> batch = List.of(event("a@mail.ru", 1L, "java developer", "hr@company.ru"));
+        digests.addAll(batch);
+        digests.addAll(batch);
+
+        digests.flushDue();
+        verify(mailDeliveryEngine, never()).submit(any(), any());
+    }
+
+    @Test
+    void pendingDigestsSurviveRestart() {
+        ResponseDigestService beforeRestart = digests(Duration.ofHours(1), 100);
+        beforeRestart.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru")));
+        assertEquals(1, redisTemplate.opsForHash().size(KEY));
+
+        ResponseDigestService afterRestart = digests(Duration.ofMillis(0), 100);
+        afterRestart.restore();
+        assertEquals(1, afterRestart.pendingCount());
+        afterRestart.flushDue();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailDeliveryEngine).submit(sent.capture(), any());
+        assertEquals("Новые отклики на вакансию java developer: 2", sent.getValue().getSubject());
+        assertEquals(0, redisTemplate.opsForHash().size(KEY));
+    }
+
+    @Test
+    void failedDigestStaysInCheckpointAndIsRetried() {
+        when(mailDeliveryEngine.submit(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new MailSendException("smtp is down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        ResponseDigestService digests = digests(true, Duration.ofMillis(0), 100, 3);
+        digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru")));
+
+        digests.flushDue();
+        assertEquals(1, digests.pendingCount());
+        assertEquals(1, redisTemplate.opsForHash().size(KEY));
+
+        digests.flushDue();
+        verify(mailDeliveryEngine, times(2)).submit(any(), any());
+        assertEquals(0, digests.pendingCount());
+        assertEquals(0, redisTemplate.opsForHash().size(KEY));
+    }
+
+    @Test
+    void exhaustedDigestMovesResponsesToDeadLetterTopic() {
+        when(mailDeliveryEngine.submit(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new MailSendException("smtp is down")));
+        ResponseDigestService digests = digests(true, Duration.ofMillis(0), 100, 1);
+        digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru")));
+
+        digests.flushDue();
+        digests.flushDue();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, String>> published = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(published.capture());
+        for (ProducerRecord<String, String> record : published.getAllValues()) {
+            assertEquals("notification-dlt", record.topic());
+            assertEquals("1", record.key());
+            assertEquals(EmailService.TOPIC_RESPONSE, new String(
+                    record.headers().lastHeader(DeliveryRetryService.HEADER_ORIGINAL_TOPIC).value(),
+                    StandardCharsets.UTF_8));
+        }
+        assertEquals(0, digests.pendingCount());
+        assertEquals(0, redisTemplate.opsForHash().size(KEY));
+    }
+
+    @Test
+    void withoutDigestsEveryResponseHasItsOwnFuture() {
+        when(mailDeliveryEngine.submit(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new MailSendException("smtp is down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        ResponseDigestService digests = digests(false, Duration.ofHours(1), 100, 3);
+
+        List<CompletableFuture<Void>> sent = digests.addAll(List.of(
+                event("a@mail.ru", 1L, "java developer", "hr@company.ru"),
+                event("b@mail.ru", 1L, "java developer", "hr@company.ru")));
+
+        assertEquals(2, sent.size());
+        assertTrue(sent.get(0).isCompletedExceptionally());
+        assertFalse(sent.get(1).isCompletedExceptionally());
+    }
+
+    private ResponseDigestService digests(Duration window, int maxSize) {
+        return digests(true, window, maxSize, 3);
+    }
+
+    private ResponseDigestService digests(boolean enabled, Duration window, int maxSize, int retryAttempts) {
+        MailTemplateService templates = new MailTemplateService(new DefaultResourceLoader(), "classpath:mail-templates/",
+                "ru", List.of("ru"));
+        templates.precompile();
+        // без задержек: повтор подходит на следующем flushDue
+        DeliveryRetryService retries = new DeliveryRetryService(kafkaTemplate, mock(ConsumerFactory.class),
+                "notification-retry-", "notification-dlt", Duration.ZERO, 5, retryAttempts);
+        return new ResponseDigestService(mailDeliveryEngine, templates, retries, redisTemplate, new ObjectMapper(),
+                enabled, window, maxSize, KEY);
+    }
+
+    private ResponseNotificationEvent event(String username, Long vacancyId, String vacancy, String email) {
+        return new ResponseNotificationEvent(username, vacancyId, vacancy, email, null);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.example.demo.DemoApplication;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.Arrays;
+
+// Пропускная способность листенеров: N событий user-registration из встроенного Kafka (4 партиции)
+// в локальный SMTP (GreenMail) для разных max-poll-records. max-poll-records=1 - по записи за poll,
+// как было до batch-листенеров. События публикуются заранее, время - от старта листенера до последнего письма.
+//
+// Запуск: mvn -B test-compile, затем
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       com.example.demo.benchmark.BatchListenerBenchmark [число событий] [max-poll-records через запятую]
+public class BatchListenerBenchmark {
+
+    private static final String TOPIC = "user-registration";
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int[] maxPollRecords = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 50, 500};
+        // logback-spring.xml (GELF в graylog) не нужен, а его ошибки не дают поднять второй контекст
+        System.setProperty(LoggingSystem.SYSTEM_PROPERTY, LoggingSystem.NONE);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        for (int value : maxPollRecords) {
+            run(events, value);
+        }
+    }
+
+    private static void run(int events, int maxPollRecords) throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 4, TOPIC);
+        broker.afterPropertiesSet();
+        GreenMail greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                // аргументами, а не .properties(): те лишь значения по умолчанию, application.properties их перекрывает
+                .run(
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--spring.kafka.consumer.auto-offset-reset=earliest",
+                        "--spring.kafka.consumer.max-poll-records=" + maxPollRecords,
+                        "--spring.kafka.listener.auto-startup=false",
+                        "--spring.mail.host=localhost",
+                        "--spring.mail.port=" + ServerSetupTest.SMTP.getPort(),
+                        "--spring.mail.username=",
+                        "--spring.mail.password=",
+                        "--spring.mail.properties.mail.smtp.auth=false",
+                        "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "--spring.mail.properties.mail.smtp.starttls.required=false",
+                        "--spring.mail.properties.mail.debug=false")) {
+
+            @SuppressWarnings("unchecked")
+            KafkaTemplate<String, String> template = context.getBean(KafkaTemplate.class);
+            for (int i = 0; i < events; i++) {
+                template.send(TOPIC, "{\"login\":\"user" + i + "@localhost\",\"token\":\"t" + i + "\"}");
+            }
+            template.flush();
+
+            long start = System.nanoTime();
+            context.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers().stream()
+                    .filter(container -> "registration-group".equals(container.getGroupId()))
+                    .forEach(container -> container.start());
+            if (!greenMail.waitForIncomingEmail(600_000, events)) {
+                throw new IllegalStateException("delivered only " + greenMail.getReceivedMessages().length);
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            double connections = context.getBean(MeterRegistry.class).find("mail.delivery.connections.opened")
+                    .counters().stream().mapToDouble(c -> c.count()).sum();
+            System.out.printf("max-poll-records=%-5d %,d events: %,d ms (%,.0f events/s), SMTP connections: %.0f%n",
+                    maxPollRecords, events, elapsedMs, events * 1000.0 / Math.max(1, elapsedMs), connections);
+        } finally {
+            greenMail.stop();
+            broker.destroy();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.RenderedEmail;
+import com.example.demo.service.MailTemplateService;
+import com.example.demo.template.MailTemplate;
+import com.example.demo.template.MailTemplateKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Отрисовка писем. formattedOld - как было: текстовый блок и .formatted()/String.format на каждое письмо, только текст;
+// verificationText - тот же текст скомпилированным шаблоном (сравнение один к одному);
+// verification / verificationEnUs / digest - MailTemplateService целиком: тема, текст и HTML.
+//
+// Запуск (вместе с профилировщиком аллокаций):
+//   mvn -B test-compile
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       com.example.demo.benchmark.MailTemplateBenchmark
+// Смотреть на ns/op и gc.alloc.rate.norm (байт на операцию).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MailTemplateBenchmark {
+
+    private static final String URL = "http://localhost:3000/auth/confirm?token=3f2b8c1e-6a7d-4e59-9b0c-2d1f8e7a6c54";
+
+    private MailTemplateService templates;
+    private MailTemplate verificationText;
+    private Set<String> candidates;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = new ClassPathResource("mail-templates/ru/verification.txt").getInputStream()) {
+            verificationText = MailTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8),
+                    MailTemplateKind.VERIFICATION.getParams(), false);
+        }
+        templates = new MailTemplateService(new DefaultResourceLoader(), "classpath:mail-templates/", "ru",
+                List.of("ru", "en"));
+        templates.precompile();
+        candidates = new LinkedHashSet<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add("candidate" + i + "@mail.ru");
+        }
+    }
+
+    @Benchmark
+    public String formattedOld() {
+        return """
+    Здравствуйте!
+    
+    Для подтверждения вашего email перейдите по ссылке:
+    %s
+    
+    Ссылка действительна в течение 24 часов.
+    
+    Если вы не регистрировались на нашем сервисе, проигнорируйте это письмо.
+    """.formatted(URL);
+    }
+
+    @Benchmark
+    public String verificationText() {
+        return verificationText.render(URL);
+    }
+
+    @Benchmark
+    public RenderedEmail verification() {
+        return templates.render(MailTemplateKind.VERIFICATION, null, URL);
+    }
+
+    @Benchmark
+    public RenderedEmail verificationEnUs() {
+        return templates.render(MailTemplateKind.VERIFICATION, "en-US", URL);
+    }
+
+    @Benchmark
+    public String digestOld() {
+        String contacts = candidates.stream()
+                .map(username -> "📧 Email: " + username)
+                .collect(Collectors.joining("\n"));
+        return String.format(
+                "Уважаемый работодатель,\n" +
+                        "На вашу вакансию «%s» откликнулись новые кандидаты: %d.\n\n" +
+                        "Контактные данные для связи:\n" +
+                        "%s\n\n" +
+                        "Это автоматическое уведомление. Пожалуйста, не отвечайте на это письмо.",
+                "java developer", candidates.size(), contacts);
+    }
+
+    @Benchmark
+    public RenderedEmail digest() {
+        return templates.render(MailTemplateKind.RESPONSE_DIGEST, "ru", "java developer", candidates.size(), candidates);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MailTemplateBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}